@@ -0,0 +1,129 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import be.nabu.libs.maven.ArtifactFileName;
+
+/**
+ * Compares the single pass file name parser with the regular expressions that were used before it
+ * The setup fails if the two disagree on any of the names in the corpus
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileNameBenchmark {
+
+	private static final String [] CORPUS = {
+		"commons-io-2.11.0.jar",
+		"commons-lang3-3.12.0.jar",
+		"guava-31.1-jre.jar",
+		"slf4j-api-1.7.36.jar",
+		"jackson-databind-2.15.2.jar",
+		"junit-4.13.2.jar",
+		"log4j-core-2.20.0-tests.jar",
+		"spring-core-5.3.29.jar",
+		"netty-all-4.1.94.Final.jar",
+		"hibernate-core-5.6.15.Final.jar",
+		"maven-repository-1.4.jar",
+		"maven-repository-1.4-SNAPSHOT.jar",
+		"maven-repository-1.4-SNAPSHOT-tests.jar",
+		"be.nabu.libs-maven-repository-1.4.jar",
+		"be.nabu.libs.http-http-server-1.0-SNAPSHOT.jar",
+		"my__company-my__lib-1__0.war",
+		"common-${project.version}.jar",
+		"bom-1.0.pom",
+		"parent-2.3.1.pom",
+		"plain.jar",
+		"README",
+		"archive.tar.gz",
+		"native-lib-1.2.3-linux-x86_64.so",
+		"tomcat-embed-core-9.0.78.jar",
+		"bcprov-jdk18on-1.76.jar",
+		"kotlin-stdlib-1.9.10.jar",
+		"scala-library-2.13.11.jar",
+		"aws-java-sdk-s3-1.12.530.jar",
+		"protobuf-java-3.24.0.jar",
+		"javax.servlet-api-4.0.1.jar"
+	};
+	
+	@Setup(Level.Trial)
+	public void verify() {
+		for (String name : CORPUS) {
+			ArtifactFileName parsed = ArtifactFileName.parse(name);
+			String [] current = new String [] { parsed.getGroupId(), parsed.getArtifactId(), parsed.getVersion(), parsed.getExtension(), Boolean.toString(parsed.isTest()) };
+			String [] legacy = legacy(name);
+			if (!Arrays.equals(current, legacy)) {
+				throw new IllegalStateException("The parsers disagree on '" + name + "': " + Arrays.toString(current) + " != " + Arrays.toString(legacy));
+			}
+		}
+	}
+	
+	@Benchmark
+	public void parse(Blackhole blackhole) {
+		for (String name : CORPUS) {
+			blackhole.consume(ArtifactFileName.parse(name));
+		}
+	}
+	
+	@Benchmark
+	public void legacy(Blackhole blackhole) {
+		for (String name : CORPUS) {
+			blackhole.consume(legacy(name));
+		}
+	}
+	
+	/**
+	 * The regular expressions that BaseArtifact used before the single pass parser
+	 */
+	private static String [] legacy(String artifactName) {
+		String groupId = artifactName.replaceAll("^([^-]+).*", "$1");
+		String resultGroupId = groupId.equals(artifactName) ? "com.example" : groupId.replace("__", "-");
+		String version = artifactName.replaceAll(".*?-([^-]+)\\.[^.]+$", "$1");
+		String resultVersion = version.equals(artifactName) ? "1.0" : version.replace("__", "-");
+		if (version.startsWith("${")) {
+			version = "1.0";
+		}
+		String name = artifactName.replaceAll("^(.+)\\.[^.]+$", "$1")
+			.replaceAll("^" + Matcher.quoteReplacement(groupId) + "-", "")
+			.replaceAll("-" + Matcher.quoteReplacement(version), "");
+		String extension = artifactName.replaceAll(".*?([^.]+)$", "$1");
+		boolean isTest = artifactName.matches(".*-tests\\.[^.]+$");
+		return new String [] { resultGroupId, name, resultVersion, extension, Boolean.toString(isTest) };
+	}
+}
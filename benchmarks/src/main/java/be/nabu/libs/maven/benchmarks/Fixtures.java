@@ -0,0 +1,142 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import be.nabu.libs.maven.FileNameTemplate;
+import be.nabu.libs.maven.file.FileRepository;
+
+/**
+ * Generates synthetic repositories on local disk, they are generated once per size and reused by later runs
+ * An artifact number is spread over groups (1000 artifacts each), artifactIds (10 versions each) and versions, the last version of every artifact is a snapshot
+ * Every tenth artifactId is a pom (like a parent or a bom), the others are jars that contain a pom.properties and a pom.xml
+ */
+class Fixtures {
+
+	static final String FILE_NAME_FORMAT = "$exploded/$artifactId/$artifactId-$version.$extension";
+	
+	static final int VERSIONS = 10, ARTIFACTS = 100;
+	
+	private static final String MARKER = ".complete";
+	
+	static File getRepository(int size) throws IOException {
+		File root = new File(System.getProperty("benchmarks.fixtures", "target/fixtures"), "repository-" + size);
+		if (!new File(root, MARKER).exists()) {
+			generate(root, size);
+		}
+		return root;
+	}
+	
+	static FileRepository newRepository(File root, boolean parallel) {
+		FileRepository repository = new FileRepository(root);
+		repository.setFileNameFormat(FILE_NAME_FORMAT);
+		if (parallel) {
+			repository.setScanPool(ForkJoinPool.commonPool());
+		}
+		return repository;
+	}
+	
+	static String getGroupId(int artifact) {
+		return "be.nabu.benchmarks.group" + (artifact / (VERSIONS * ARTIFACTS));
+	}
+	
+	static String getArtifactId(int artifact) {
+		return "artifact-" + ((artifact / VERSIONS) % ARTIFACTS);
+	}
+	
+	static String getVersion(int artifact) {
+		int version = artifact % VERSIONS;
+		return version == VERSIONS - 1 ? "2.0-SNAPSHOT" : "1." + version;
+	}
+	
+	static boolean isPom(int artifact) {
+		return (artifact / VERSIONS) % ARTIFACTS % 10 == 9;
+	}
+	
+	private static void generate(File root, int size) throws IOException {
+		System.out.println("Generating " + size + " artifacts in " + root);
+		FileNameTemplate template = new FileNameTemplate(FILE_NAME_FORMAT);
+		for (int artifact = 0; artifact < size; artifact++) {
+			String groupId = getGroupId(artifact), artifactId = getArtifactId(artifact), version = getVersion(artifact);
+			String packaging = isPom(artifact) ? "pom" : "jar";
+			File file = new File(root, template.format(groupId, artifactId, version, packaging, false));
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), isPom(artifact) ? pom(groupId, artifactId, version, packaging) : jar(groupId, artifactId, version));
+		}
+		Files.write(new File(root, MARKER).toPath(), new byte[0]);
+	}
+	
+	private static byte[] pom(String groupId, String artifactId, String version, String packaging) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		builder.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n")
+			.append("\t<modelVersion>4.0.0</modelVersion>\n")
+			.append("\t<groupId>").append(groupId).append("</groupId>\n")
+			.append("\t<artifactId>").append(artifactId).append("</artifactId>\n")
+			.append("\t<version>").append(version).append("</version>\n")
+			.append("\t<packaging>").append(packaging).append("</packaging>\n")
+			.append("\t<dependencies>\n");
+		for (int i = 0; i < 20; i++) {
+			builder.append("\t\t<dependency>\n\t\t\t<groupId>").append(groupId).append("</groupId>\n\t\t\t<artifactId>dependency-").append(i).append("</artifactId>\n\t\t\t<version>1.0</version>\n\t\t</dependency>\n");
+		}
+		builder.append("\t</dependencies>\n</project>\n");
+		return builder.toString().getBytes("UTF-8");
+	}
+	
+	private static byte[] jar(String groupId, String artifactId, String version) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ZipOutputStream zip = new ZipOutputStream(output);
+		for (int i = 0; i < 10; i++) {
+			zip.putNextEntry(new ZipEntry(groupId.replace('.', '/') + "/Class" + i + ".class"));
+			zip.write(new byte[512]);
+		}
+		String path = "META-INF/maven/" + groupId + "/" + artifactId + "/";
+		zip.putNextEntry(new ZipEntry(path + "pom.properties"));
+		zip.write(("groupId=" + groupId + "\nartifactId=" + artifactId + "\nversion=" + version + "\n").getBytes("UTF-8"));
+		zip.putNextEntry(new ZipEntry(path + "pom.xml"));
+		zip.write(pom(groupId, artifactId, version, "jar"));
+		zip.close();
+		return output.toByteArray();
+	}
+	
+	/**
+	 * Reads the stream to the end, returning the amount of bytes so the result can be consumed
+	 */
+	static long consume(InputStream input) throws IOException {
+		try {
+			long total = 0;
+			byte [] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				total += read;
+			}
+			return total;
+		}
+		finally {
+			input.close();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.file.FileRepository;
+
+/**
+ * Reads the metadata of random artifacts, both the metadata listing all the versions and the metadata of a single version
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetaDataBenchmark {
+
+	private static final int COORDINATES = 1024;
+	
+	@Param({ "1000", "100000", "1000000" })
+	private int size;
+	
+	private FileRepository repository;
+	private String [] groupIds = new String[COORDINATES], artifactIds = new String[COORDINATES];
+	private Artifact [] artifacts = new Artifact[COORDINATES];
+	
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		repository = Fixtures.newRepository(Fixtures.getRepository(size), true);
+		repository.scan();
+		Random random = new Random(42);
+		for (int i = 0; i < COORDINATES; i++) {
+			int artifact = random.nextInt(size);
+			groupIds[i] = Fixtures.getGroupId(artifact);
+			artifactIds[i] = Fixtures.getArtifactId(artifact);
+			artifacts[i] = repository.getArtifact(groupIds[i], artifactIds[i], Fixtures.getVersion(artifact), false);
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int position;
+		
+		int next() {
+			position = (position + 1) & (COORDINATES - 1);
+			return position;
+		}
+	}
+	
+	@Benchmark
+	public long getArtifactMetaData(Cursor cursor) throws IOException {
+		int index = cursor.next();
+		return Fixtures.consume(repository.getMetaData(groupIds[index], artifactIds[index]));
+	}
+	
+	@Benchmark
+	public long getVersionMetaData(Cursor cursor) throws IOException {
+		return Fixtures.consume(repository.getMetaData(artifacts[cursor.next()]));
+	}
+}
@@ -0,0 +1,74 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.file.FileRepository;
+
+/**
+ * Reads the pom of a jar (packaged inside the archive) and of a pom artifact (the file itself)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PomBenchmark {
+
+	@Param({ "1000" })
+	private int size;
+	
+	private Artifact jar, pom;
+	
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		FileRepository repository = Fixtures.newRepository(Fixtures.getRepository(size), false);
+		repository.scan();
+		// artifact 0 is a jar, artifact 90 is the first pom
+		jar = repository.getArtifact(Fixtures.getGroupId(0), Fixtures.getArtifactId(0), Fixtures.getVersion(0), false);
+		pom = repository.getArtifact(Fixtures.getGroupId(90), Fixtures.getArtifactId(90), Fixtures.getVersion(90), false);
+	}
+	
+	@Benchmark
+	public long getPomFromJar() throws IOException {
+		return Fixtures.consume(jar.getPom());
+	}
+	
+	@Benchmark
+	public long getPomFromPom() throws IOException {
+		return Fixtures.consume(pom.getPom());
+	}
+}
@@ -0,0 +1,85 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.nabu.libs.maven.file.FileRepository;
+
+/**
+ * A cold scan starts from a new repository and parses every artifact, a warm scan rescans a repository that is already up to date
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScanBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	private int size;
+	
+	@Param({ "false", "true" })
+	private boolean parallel;
+	
+	private File root;
+	private FileRepository warm;
+	
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		root = Fixtures.getRepository(size);
+		warm = Fixtures.newRepository(root, parallel);
+		warm.scan();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		warm.close();
+	}
+	
+	@Benchmark
+	public FileRepository scanCold() throws IOException {
+		FileRepository repository = Fixtures.newRepository(root, parallel);
+		repository.scan();
+		return repository;
+	}
+	
+	@Benchmark
+	public FileRepository scanWarm() throws IOException {
+		warm.scan();
+		return warm;
+	}
+}
@@ -0,0 +1,119 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven;
+
+/**
+ * The information that can be derived from the file name of an artifact, parsed in a single pass over the name
+ * The coordinates are only used for files that do not contain a pom.properties, they follow the convention "groupId-artifactId-version.extension" where "__" can be used to escape a "-"
+ * If the name does not contain enough information, the groupId defaults to "com.example" and the version to "1.0"
+ */
+public class ArtifactFileName {
+
+	private static final String TEST_SUFFIX = "-tests";
+
+	private final String name, extension, groupId, artifactId, version;
+	private final boolean test;
+
+	public static ArtifactFileName parse(String name) {
+		return new ArtifactFileName(name);
+	}
+
+	private ArtifactFileName(String name) {
+		this.name = name;
+		int lastDot = name.lastIndexOf('.');
+		// only a dot with something after it starts an extension
+		boolean hasExtension = lastDot >= 0 && lastDot < name.length() - 1;
+		this.extension = hasExtension ? name.substring(lastDot + 1) : name;
+		this.test = hasExtension && lastDot >= TEST_SUFFIX.length() && name.startsWith(TEST_SUFFIX, lastDot - TEST_SUFFIX.length());
+
+		// the groupId is everything up to the first "-"
+		int firstDash = name.indexOf('-');
+		String groupId = firstDash > 0 ? name.substring(0, firstDash) : null;
+		this.groupId = groupId == null ? "com.example" : groupId.replace("__", "-");
+
+		// the version is everything between the last "-" and the extension
+		int versionStart = hasExtension ? name.lastIndexOf('-', lastDot - 1) + 1 : 0;
+		String version = versionStart > 0 && versionStart < lastDot ? name.substring(versionStart, lastDot) : null;
+		this.version = version == null ? "1.0" : version.replace("__", "-");
+
+		// the artifactId is what remains when the groupId, the version and the extension are removed
+		String artifactId = hasExtension && lastDot > 0 ? name.substring(0, lastDot) : name;
+		if (groupId != null && artifactId.startsWith(groupId + "-")) {
+			artifactId = artifactId.substring(groupId.length() + 1);
+		}
+		// dirty hack for a artifact with name common-${project.version}.jar
+		String versionInName = version == null ? name : version;
+		if (versionInName.startsWith("${")) {
+			versionInName = "1.0";
+		}
+		artifactId = removeAll(artifactId, "-" + versionInName);
+		this.artifactId = artifactId;
+	}
+
+	private static String removeAll(String value, String toRemove) {
+		int index = value.indexOf(toRemove);
+		if (index < 0) {
+			return value;
+		}
+		StringBuilder builder = new StringBuilder(value.length());
+		int start = 0;
+		while (index >= 0) {
+			builder.append(value, start, index);
+			start = index + toRemove.length();
+			index = value.indexOf(toRemove, start);
+		}
+		return builder.append(value, start, value.length()).toString();
+	}
+
+	/**
+	 * Returns the classifier for the given coordinates, this is whatever sits between "artifactId-version-" and the extension
+	 * Test artifacts always have the classifier "tests"
+	 */
+	public String getClassifier(String artifactId, String version) {
+		if (test) {
+			return TEST_SUFFIX.substring(1);
+		}
+		int lastDot = name.lastIndexOf('.');
+		if (artifactId != null && version != null && lastDot > 0) {
+			int start = artifactId.length() + version.length() + 2;
+			if (start < lastDot && name.startsWith(artifactId) && name.charAt(artifactId.length()) == '-' && name.startsWith(version, artifactId.length() + 1) && name.charAt(start - 1) == '-') {
+				return name.substring(start, lastDot);
+			}
+		}
+		return null;
+	}
+
+	public String getName() {
+		return name;
+	}
+	public String getExtension() {
+		return extension;
+	}
+	public boolean isTest() {
+		return test;
+	}
+	public String getGroupId() {
+		return groupId;
+	}
+	public String getArtifactId() {
+		return artifactId;
+	}
+	public String getVersion() {
+		return version;
+	}
+}
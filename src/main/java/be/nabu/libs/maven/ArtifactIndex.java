@@ -0,0 +1,466 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import be.nabu.libs.maven.api.Artifact;
+
+/**
+ * An immutable groupId > artifactId > version > (main, test) index of the artifacts in a repository
+ * Changes are applied in batches with {@link #update(Collection, Collection)} which returns a new index that shares all the untouched branches with this one
+ * The groups and artifacts are kept in persistent trees so an update only copies the path to what it touches, not the levels around it
+ * This means an index can be read by any number of threads without locking and the sets it returns never change
+ * Versions are sorted according to the maven rules, using the parsed versions of the artifacts that were added
+ */
+public class ArtifactIndex {
+
+	private static final SortedSet<String> EMPTY = Collections.unmodifiableSortedSet(new TreeSet<String>());
+
+	private Node<Group> groups;
+	/**
+	 * Built the first time it is requested
+	 */
+	private volatile SortedSet<String> groupView;
+
+	public ArtifactIndex() {
+		this(null);
+	}
+
+	private ArtifactIndex(Node<Group> groups) {
+		this.groups = groups;
+	}
+
+	/**
+	 * Returns a new index with the changes applied, the removals are applied first
+	 * An artifact that is removed is only removed if it is the one that is currently indexed for its coordinates, or one that is waiting behind it
+	 * If several artifacts have the same coordinates, the one that was added first is returned and the others take over in the order they were added once it is removed
+	 * An artifact that is removed and another that is added for the same coordinates in one update take the same place, this is how an artifact is replaced
+	 */
+	public ArtifactIndex update(Collection<? extends Artifact> added, Collection<? extends Artifact> removed) {
+		if (added.isEmpty() && removed.isEmpty()) {
+			return this;
+		}
+		// the version maps we have already copied in this update, they can be modified in place
+		Map<String, Map<String, TreeMap<String, Entry>>> copiedVersions = new HashMap<String, Map<String, TreeMap<String, Entry>>>();
+		for (Artifact artifact : removed) {
+			if (isIndexable(artifact)) {
+				TreeMap<String, Entry> versions = getVersionsForUpdate(copiedVersions, artifact);
+				Entry entry = versions.get(artifact.getVersion());
+				if (entry != null) {
+					versions.put(artifact.getVersion(), entry.without(artifact));
+				}
+			}
+		}
+		for (Artifact artifact : added) {
+			if (isIndexable(artifact)) {
+				TreeMap<String, Entry> versions = getVersionsForUpdate(copiedVersions, artifact);
+				((VersionOrder) versions.comparator()).register(artifact);
+				Entry entry = versions.get(artifact.getVersion());
+				versions.put(artifact.getVersion(), entry == null ? new Entry(null, null, null).with(artifact) : entry.with(artifact));
+			}
+		}
+		// freeze the copied branches, dropping the ones that have become empty
+		Node<Group> groups = this.groups;
+		for (Map.Entry<String, Map<String, TreeMap<String, Entry>>> copiedGroup : copiedVersions.entrySet()) {
+			Group group = Node.get(groups, copiedGroup.getKey());
+			Node<Versions> artifacts = group == null ? null : group.artifacts;
+			for (Map.Entry<String, TreeMap<String, Entry>> copied : copiedGroup.getValue().entrySet()) {
+				VersionOrder order = (VersionOrder) copied.getValue().comparator();
+				// only now that all the changes are applied do the waiting artifacts take the places that are still empty
+				Iterator<Map.Entry<String, Entry>> iterator = copied.getValue().entrySet().iterator();
+				while (iterator.hasNext()) {
+					Map.Entry<String, Entry> version = iterator.next();
+					Entry settled = version.getValue().settle();
+					if (settled == null) {
+						iterator.remove();
+						order.keys.remove(version.getKey());
+					}
+					else if (settled != version.getValue()) {
+						version.setValue(settled);
+					}
+				}
+				if (copied.getValue().isEmpty()) {
+					artifacts = Node.remove(artifacts, copied.getKey());
+				}
+				else {
+					artifacts = Node.put(artifacts, copied.getKey(), new Versions(copied.getValue()));
+				}
+			}
+			if (artifacts == null) {
+				groups = Node.remove(groups, copiedGroup.getKey());
+			}
+			else if (group == null || artifacts != group.artifacts) {
+				groups = Node.put(groups, copiedGroup.getKey(), new Group(artifacts));
+			}
+		}
+		return new ArtifactIndex(groups);
+	}
+
+	private TreeMap<String, Entry> getVersionsForUpdate(Map<String, Map<String, TreeMap<String, Entry>>> copiedVersions, Artifact artifact) {
+		Map<String, TreeMap<String, Entry>> copiedGroup = copiedVersions.get(artifact.getGroupId());
+		if (copiedGroup == null) {
+			copiedGroup = new HashMap<String, TreeMap<String, Entry>>();
+			copiedVersions.put(artifact.getGroupId(), copiedGroup);
+		}
+		TreeMap<String, Entry> versions = copiedGroup.get(artifact.getArtifactId());
+		if (versions == null) {
+			Versions existing = getVersionMap(artifact.getGroupId(), artifact.getArtifactId());
+			versions = new TreeMap<String, Entry>(new VersionOrder(existing == null ? null : existing.order));
+			if (existing != null) {
+				versions.putAll(existing.versions);
+			}
+			copiedGroup.put(artifact.getArtifactId(), versions);
+		}
+		return versions;
+	}
+
+	public SortedSet<String> getGroups() {
+		SortedSet<String> groupView = this.groupView;
+		if (groupView == null) {
+			groupView = Node.keys(groups);
+			this.groupView = groupView;
+		}
+		return groupView;
+	}
+
+	public SortedSet<String> getArtifacts(String groupId) {
+		Group group = Node.get(groups, groupId);
+		return group == null ? EMPTY : group.getView();
+	}
+
+	public SortedSet<String> getVersions(String groupId, String artifactId) {
+		Versions versions = getVersionMap(groupId, artifactId);
+		return versions == null ? EMPTY : versions.view;
+	}
+
+	public Artifact getArtifact(String groupId, String artifactId, String version, boolean isTest) {
+		Versions versions = getVersionMap(groupId, artifactId);
+		// a version we don't know would be parsed for every comparison in the lookup
+		Entry entry = versions == null || !versions.order.keys.containsKey(version) ? null : versions.versions.get(version);
+		if (entry == null) {
+			return null;
+		}
+		return isTest ? entry.test : entry.main;
+	}
+
+	/**
+	 * Returns the artifact for the highest version, preferring the main artifact over the test artifact
+	 */
+	public Artifact getLatest(String groupId, String artifactId) {
+		Versions versions = getVersionMap(groupId, artifactId);
+		return versions == null ? null : versions.latest;
+	}
+
+	/**
+	 * Returns the artifact for the highest version that is not a snapshot, preferring the main artifact over the test artifact
+	 */
+	public Artifact getRelease(String groupId, String artifactId) {
+		Versions versions = getVersionMap(groupId, artifactId);
+		return versions == null ? null : versions.release;
+	}
+
+	private Versions getVersionMap(String groupId, String artifactId) {
+		Group group = Node.get(groups, groupId);
+		return group == null ? null : Node.get(group.artifacts, artifactId);
+	}
+
+	private static boolean isIndexable(Artifact artifact) {
+		return artifact.getGroupId() != null && artifact.getArtifactId() != null && artifact.getVersion() != null;
+	}
+
+	/**
+	 * Sorts the versions of one artifact on their parsed form, it only knows the versions that artifact has so versions that are removed are forgotten
+	 * A version is always registered before an index containing it is published so readers never have to parse
+	 */
+	private static class VersionOrder implements Comparator<String> {
+		private Map<String, MavenVersion> keys;
+
+		private VersionOrder(VersionOrder original) {
+			this.keys = original == null ? new HashMap<String, MavenVersion>() : new HashMap<String, MavenVersion>(original.keys);
+		}
+
+		private void register(Artifact artifact) {
+			if (!keys.containsKey(artifact.getVersion())) {
+				MavenVersion key = artifact instanceof BaseArtifact ? ((BaseArtifact) artifact).getVersionKey() : null;
+				keys.put(artifact.getVersion(), key == null ? MavenVersion.parse(artifact.getVersion()) : key);
+			}
+		}
+
+		private MavenVersion getKey(String version) {
+			MavenVersion key = keys.get(version);
+			return key == null ? MavenVersion.parse(version) : key;
+		}
+
+		@Override
+		public int compare(String first, String second) {
+			int result = getKey(first).compareTo(getKey(second));
+			// versions like 1.0 and 1.0.0 are equal for maven but they are different files so we need to keep both
+			return result == 0 ? first.compareTo(second) : result;
+		}
+
+		/**
+		 * All the orders sort the same way, this allows a tree map to copy another one without sorting it again
+		 */
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof VersionOrder;
+		}
+
+		@Override
+		public int hashCode() {
+			return VersionOrder.class.hashCode();
+		}
+	}
+
+	/**
+	 * A node in an immutable AVL tree sorted on its key, a change copies the path from the root to the node and shares everything else
+	 */
+	private static class Node<V> {
+		private String key;
+		private V value;
+		private Node<V> left, right;
+		private int height;
+
+		private Node(String key, V value, Node<V> left, Node<V> right) {
+			this.key = key;
+			this.value = value;
+			this.left = left;
+			this.right = right;
+			this.height = Math.max(height(left), height(right)) + 1;
+		}
+
+		private static int height(Node<?> node) {
+			return node == null ? 0 : node.height;
+		}
+
+		private static <V> V get(Node<V> node, String key) {
+			while (node != null) {
+				int result = key.compareTo(node.key);
+				if (result == 0) {
+					return node.value;
+				}
+				node = result < 0 ? node.left : node.right;
+			}
+			return null;
+		}
+
+		private static <V> Node<V> put(Node<V> node, String key, V value) {
+			if (node == null) {
+				return new Node<V>(key, value, null, null);
+			}
+			int result = key.compareTo(node.key);
+			if (result < 0) {
+				return balance(node.key, node.value, put(node.left, key, value), node.right);
+			}
+			else if (result > 0) {
+				return balance(node.key, node.value, node.left, put(node.right, key, value));
+			}
+			return new Node<V>(key, value, node.left, node.right);
+		}
+
+		private static <V> Node<V> remove(Node<V> node, String key) {
+			if (node == null) {
+				return null;
+			}
+			int result = key.compareTo(node.key);
+			if (result < 0) {
+				Node<V> left = remove(node.left, key);
+				return left == node.left ? node : balance(node.key, node.value, left, node.right);
+			}
+			else if (result > 0) {
+				Node<V> right = remove(node.right, key);
+				return right == node.right ? node : balance(node.key, node.value, node.left, right);
+			}
+			else if (node.left == null) {
+				return node.right;
+			}
+			else if (node.right == null) {
+				return node.left;
+			}
+			// the smallest node on the right takes the place of the removed one
+			Node<V> successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			return balance(successor.key, successor.value, node.left, remove(node.right, successor.key));
+		}
+
+		private static <V> Node<V> balance(String key, V value, Node<V> left, Node<V> right) {
+			if (height(left) > height(right) + 1) {
+				if (height(left.left) >= height(left.right)) {
+					return new Node<V>(left.key, left.value, left.left, new Node<V>(key, value, left.right, right));
+				}
+				return new Node<V>(left.right.key, left.right.value, new Node<V>(left.key, left.value, left.left, left.right.left), new Node<V>(key, value, left.right.right, right));
+			}
+			else if (height(right) > height(left) + 1) {
+				if (height(right.right) >= height(right.left)) {
+					return new Node<V>(right.key, right.value, new Node<V>(key, value, left, right.left), right.right);
+				}
+				return new Node<V>(right.left.key, right.left.value, new Node<V>(key, value, left, right.left.left), new Node<V>(right.key, right.value, right.left.right, right.right));
+			}
+			return new Node<V>(key, value, left, right);
+		}
+
+		private static SortedSet<String> keys(Node<?> node) {
+			if (node == null) {
+				return EMPTY;
+			}
+			List<String> keys = new ArrayList<String>();
+			addKeys(node, keys);
+			return Collections.unmodifiableSortedSet(new TreeSet<String>(keys));
+		}
+
+		private static void addKeys(Node<?> node, List<String> keys) {
+			if (node != null) {
+				addKeys(node.left, keys);
+				keys.add(node.key);
+				addKeys(node.right, keys);
+			}
+		}
+	}
+
+	private static class Group {
+		private Node<Versions> artifacts;
+		private volatile SortedSet<String> view;
+
+		private Group(Node<Versions> artifacts) {
+			this.artifacts = artifacts;
+		}
+
+		private SortedSet<String> getView() {
+			SortedSet<String> view = this.view;
+			if (view == null) {
+				view = Node.keys(artifacts);
+				this.view = view;
+			}
+			return view;
+		}
+	}
+
+	private static class Versions {
+		private TreeMap<String, Entry> versions;
+		private VersionOrder order;
+		private SortedSet<String> view;
+		private Artifact latest, release;
+
+		private Versions(TreeMap<String, Entry> versions) {
+			this.versions = versions;
+			this.order = (VersionOrder) versions.comparator();
+			this.view = Collections.unmodifiableSortedSet(versions.navigableKeySet());
+			this.latest = versions.lastEntry().getValue().getPreferred();
+			for (Entry entry : versions.descendingMap().values()) {
+				if (!entry.getPreferred().getVersion().endsWith("-SNAPSHOT")) {
+					this.release = entry.getPreferred();
+					break;
+				}
+			}
+		}
+	}
+
+	private static class Entry {
+		private Artifact main, test;
+		/**
+		 * The artifacts with the same coordinates that were added after the current ones, in the order they were added
+		 */
+		private Artifact [] waiting;
+
+		private Entry(Artifact main, Artifact test, Artifact [] waiting) {
+			this.main = main;
+			this.test = test;
+			this.waiting = waiting;
+		}
+
+		private Entry with(Artifact artifact) {
+			Artifact current = artifact.isTest() ? test : main;
+			if (current == null) {
+				return artifact.isTest() ? new Entry(main, artifact, waiting) : new Entry(artifact, test, waiting);
+			}
+			else if (current == artifact || indexOf(artifact) >= 0) {
+				return this;
+			}
+			Artifact [] waiting = this.waiting == null ? new Artifact[1] : Arrays.copyOf(this.waiting, this.waiting.length + 1);
+			waiting[waiting.length - 1] = artifact;
+			return new Entry(main, test, waiting);
+		}
+
+		/**
+		 * The place of a current artifact is left empty until the update settles, so an artifact that replaces it in the same update takes it
+		 */
+		private Entry without(Artifact artifact) {
+			if (artifact.isTest() && test == artifact) {
+				return new Entry(main, null, waiting);
+			}
+			else if (!artifact.isTest() && main == artifact) {
+				return new Entry(null, test, waiting);
+			}
+			int index = indexOf(artifact);
+			if (index < 0) {
+				return this;
+			}
+			Artifact [] waiting = null;
+			if (this.waiting.length > 1) {
+				waiting = new Artifact[this.waiting.length - 1];
+				System.arraycopy(this.waiting, 0, waiting, 0, index);
+				System.arraycopy(this.waiting, index + 1, waiting, index, waiting.length - index);
+			}
+			return new Entry(main, test, waiting);
+		}
+
+		/**
+		 * Fills the empty places with the first waiting artifacts, returns null if the entry is empty
+		 */
+		private Entry settle() {
+			Entry result = this;
+			if (waiting != null && (main == null || test == null)) {
+				for (Artifact artifact : waiting) {
+					if (artifact.isTest() ? result.test == null : result.main == null) {
+						result = result.without(artifact).with(artifact);
+					}
+				}
+			}
+			return result.main == null && result.test == null ? null : result;
+		}
+
+		private int indexOf(Artifact artifact) {
+			if (waiting != null) {
+				for (int i = 0; i < waiting.length; i++) {
+					if (waiting[i] == artifact) {
+						return i;
+					}
+				}
+			}
+			return -1;
+		}
+
+		private Artifact getPreferred() {
+			return main == null ? test : main;
+		}
+	}
+}
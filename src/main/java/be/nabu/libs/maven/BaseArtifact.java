@@ -18,41 +18,86 @@
 package be.nabu.libs.maven;
 
 import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Properties;
-import java.util.regex.Matcher;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
-import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.RepositoryUtils.HashAlgorithm;
+import be.nabu.libs.maven.api.ChannelArtifact;
+import be.nabu.libs.maven.api.HashedArtifact;
+import be.nabu.libs.maven.api.RepositoryMetrics;
 
-abstract public class BaseArtifact implements Artifact {
+abstract public class BaseArtifact implements HashedArtifact, ChannelArtifact {
 
 	private String groupId, artifactId, version, packaging;
 	
+	/**
+	 * The version parsed for sorting, this is calculated once when the version is set
+	 */
+	private MavenVersion versionKey;
+	
+	private Map<HashAlgorithm, String> hashes;
+	
+	private volatile ArtifactFileName fileName;
+	
+	/**
+	 * The repository that indexed this artifact, it is used to report metrics
+	 */
+	private BaseRepository repository;
+	
 	@Override
 	public InputStream getPom() throws IOException {
 		if (getPackaging().equalsIgnoreCase("pom")) {
 			return getContent();
 		}
 		else {
-			InputStream input = getContent();
-			try {
-				ZipInputStream zip = new ZipInputStream(input);
-				ZipEntry entry;
-				while((entry = zip.getNextEntry()) != null) {
-					if (entry.getName().endsWith("/pom.xml"))
-						return zip;
-				}
-				// if no pom.xml was found, generate it
-				return new ByteArrayInputStream(generatePom().getBytes("UTF-8"));
-			}
-			catch (IOException e) {
-				input.close();
-				throw e;
+			InputStream pom = getPomFromArchive();
+			// if no pom.xml was found, generate it
+			return pom == null ? new ByteArrayInputStream(generatePom().getBytes("UTF-8")) : pom;
+		}
+	}
+	
+	/**
+	 * Returns the pom.xml packaged in the archive or null if there is none
+	 * This streams through the content until it finds the entry, implementations with random access to the archive should override it
+	 */
+	protected InputStream getPomFromArchive() throws IOException {
+		InputStream input = getInternalContent();
+		try {
+			ZipInputStream zip = new ZipInputStream(input);
+			ZipEntry entry;
+			while((entry = zip.getNextEntry()) != null) {
+				if (entry.getName().endsWith("/pom.xml"))
+					return zip;
 			}
 		}
+		catch (IOException e) {
+			input.close();
+			throw e;
+		}
+		input.close();
+		return null;
+	}
+	
+	/**
+	 * Returns the pom.properties packaged in the archive or null if there is none
+	 * This streams through the content until it finds the entry, implementations with random access to the archive should override it
+	 */
+	protected Properties getPropertiesFromArchive() throws IOException {
+		InputStream input = getInternalContent();
+		try {
+			return RepositoryUtils.getPropertiesFromZip(input);
+		}
+		finally {
+			input.close();
+		}
 	}
 	
 	private String generatePom() {
@@ -69,18 +114,18 @@ abstract public class BaseArtifact implements Artifact {
 	}
 	
 	protected void parseProperties() throws IOException {
-		InputStream input = getContent();
 		Properties properties;
-		try {
-			if (getPackaging().equalsIgnoreCase("pom")) {
+		if (getPackaging().equalsIgnoreCase("pom")) {
+			InputStream input = getInternalContent();
+			try {
 				properties = RepositoryUtils.getPropertiesFromXML(input);
 			}
-			else {
-				properties = RepositoryUtils.getPropertiesFromZip(input);
+			finally {
+				input.close();
 			}
 		}
-		finally {
-			input.close();
+		else {
+			properties = getPropertiesFromArchive();
 		}
 		if (properties != null) {
 			setVersion(properties.getProperty("version"));
@@ -89,23 +134,130 @@ abstract public class BaseArtifact implements Artifact {
 			packaging = properties.getProperty("packaging");
 		}
 		else {
-			String groupId = getArtifactName().replaceAll("^([^-]+).*", "$1");
-			setGroupId(groupId.equals(getArtifactName()) ? "com.example" : groupId.replace("__", "-"));
-			String version = getArtifactName().replaceAll(".*?-([^-]+)\\.[^.]+$", "$1");
-			// the replacement makes sure we can still add "-" to versions in the file name
-			setVersion(version.equals(getArtifactName()) ? "1.0" : version.replace("__", "-"));
-			// dirty hack for a artifact with name common-${project.version}.jar
-			if (version.startsWith("${")) {
-				version = "1.0";
-			}
-			String name = getArtifactName().replaceAll("^(.+)\\.[^.]+$", "$1")
-				.replaceAll("^" + Matcher.quoteReplacement(groupId) + "-", "")
-				.replaceAll("-" + Matcher.quoteReplacement(version), "");
-			setArtifactId(name);
+			ArtifactFileName fileName = getFileName();
+			setGroupId(fileName.getGroupId());
+			setVersion(fileName.getVersion());
+			setArtifactId(fileName.getArtifactId());
 		}
 	}
 	
 	abstract protected String getArtifactName();
+	
+	/**
+	 * The content for reads that the artifact does itself (like parsing and hashing), by default this is the regular content
+	 * Implementations that meter their content should return an unmetered stream here so only the content that is actually served is reported
+	 */
+	protected InputStream getInternalContent() throws IOException {
+		return getContent();
+	}
+	
+	protected void setRepository(BaseRepository repository) {
+		this.repository = repository;
+	}
+	
+	protected RepositoryMetrics getMetrics() {
+		BaseRepository repository = this.repository;
+		return repository == null ? null : repository.getMetrics();
+	}
+	
+	/**
+	 * Reports the bytes when the stream is closed, if no metrics are being collected the stream is returned as is
+	 */
+	protected InputStream meter(InputStream input) {
+		RepositoryMetrics metrics = getMetrics();
+		return metrics == null ? input : new MeteredInputStream(input, metrics);
+	}
+	
+	/**
+	 * By default the length is not known up front
+	 */
+	@Override
+	public long getContentLength() throws IOException {
+		return -1;
+	}
+	
+	@Override
+	public long transferTo(WritableByteChannel channel) throws IOException {
+		return transferTo(channel, 0, -1);
+	}
+	
+	/**
+	 * By default this copies the content stream to the channel
+	 */
+	@Override
+	public long transferTo(WritableByteChannel channel, long offset, long length) throws IOException {
+		InputStream input = getContent(offset, length);
+		try {
+			long written = 0;
+			byte [] buffer = new byte[102400];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				ByteBuffer wrapped = ByteBuffer.wrap(buffer, 0, read);
+				while (wrapped.hasRemaining()) {
+					channel.write(wrapped);
+				}
+				written += read;
+			}
+			return written;
+		}
+		finally {
+			input.close();
+		}
+	}
+	
+	/**
+	 * By default this skips through the content stream
+	 */
+	@Override
+	public InputStream getContent(long offset, long length) throws IOException {
+		InputStream input = getContent();
+		try {
+			RepositoryUtils.skip(input, offset);
+		}
+		catch (IOException e) {
+			input.close();
+			throw e;
+		}
+		return length < 0 ? input : RepositoryUtils.limit(input, length);
+	}
+	
+	@Override
+	public String getHash(HashAlgorithm algorithm) throws IOException {
+		String hash = getCachedHash(algorithm);
+		RepositoryMetrics metrics = getMetrics();
+		if (metrics != null) {
+			metrics.cached("hash", hash != null);
+		}
+		if (hash == null) {
+			hash = calculateHash(algorithm);
+			setHash(algorithm, hash);
+		}
+		return hash;
+	}
+	
+	/**
+	 * Calculates the hash when it is not cached yet, by default this reads the content
+	 */
+	protected String calculateHash(HashAlgorithm algorithm) throws IOException {
+		InputStream input = getInternalContent();
+		try {
+			return RepositoryUtils.hash(input, algorithm);
+		}
+		finally {
+			input.close();
+		}
+	}
+	
+	protected synchronized String getCachedHash(HashAlgorithm algorithm) {
+		return hashes == null ? null : hashes.get(algorithm);
+	}
+	
+	protected synchronized void setHash(HashAlgorithm algorithm, String hash) {
+		if (hashes == null) {
+			hashes = new EnumMap<HashAlgorithm, String>(HashAlgorithm.class);
+		}
+		hashes.put(algorithm, hash);
+	}
 
 	@Override
 	public String getGroupId() {
@@ -132,23 +284,89 @@ abstract public class BaseArtifact implements Artifact {
 
 	protected void setVersion(String version) {
 		this.version = version;
+		this.versionKey = version == null ? null : MavenVersion.parse(version);
+	}
+	
+	public MavenVersion getVersionKey() {
+		return versionKey;
 	}
 
-	private String getExtension() {
-		return getArtifactName().replaceAll(".*?([^.]+)$", "$1");
+	/**
+	 * The file name is parsed only once, it is immutable so it can be shared without locking
+	 */
+	protected ArtifactFileName getFileName() {
+		ArtifactFileName fileName = this.fileName;
+		if (fileName == null) {
+			fileName = ArtifactFileName.parse(getArtifactName());
+			this.fileName = fileName;
+		}
+		return fileName;
+	}
+	
+	/**
+	 * The classifier of the artifact if the file name has one
+	 */
+	public String getClassifier() {
+		return getFileName().getClassifier(getArtifactId(), getVersion());
 	}
 	
 	@Override
 	public String getPackaging() {
 		if (packaging == null) {
-			packaging = getExtension().toLowerCase();
+			packaging = getFileName().getExtension().toLowerCase();
 		}
 		return packaging;
 	}
 
+	protected void setPackaging(String packaging) {
+		this.packaging = packaging;
+	}
+
 	@Override
 	public boolean isTest() {
-		return getArtifactName().matches(".*-tests\\.[^.]+$");
+		return getFileName().isTest();
 	}
 
+	
+	private static class MeteredInputStream extends FilterInputStream {
+		private RepositoryMetrics metrics;
+		private long read;
+		private boolean closed;
+		
+		private MeteredInputStream(InputStream input, RepositoryMetrics metrics) {
+			super(input);
+			this.metrics = metrics;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			int result = super.read();
+			if (result >= 0) {
+				read++;
+			}
+			return result;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			int result = super.read(bytes, offset, length);
+			if (result > 0) {
+				read += result;
+			}
+			return result;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			}
+			finally {
+				if (!closed) {
+					closed = true;
+					metrics.served(read);
+				}
+			}
+		}
+	}
 }
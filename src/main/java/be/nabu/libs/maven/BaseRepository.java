@@ -17,21 +17,32 @@
 
 package be.nabu.libs.maven;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import be.nabu.libs.maven.api.Artifact;
 import be.nabu.libs.maven.api.DomainRepository;
+import be.nabu.libs.maven.api.ResolveRequest;
+import be.nabu.libs.maven.api.ResolveResult;
+import be.nabu.libs.maven.api.RepositoryMetrics;
+import be.nabu.libs.maven.api.RepositoryMetrics.Operation;
 
 abstract public class BaseRepository implements DomainRepository {
 
@@ -41,9 +52,46 @@ abstract public class BaseRepository implements DomainRepository {
 	 */
 	public static final String PROPERTY_MODEL_VERSION = "be.nabu.mvn.repo.modelVersion";
 	
-	abstract protected List<? extends Artifact> getArtifacts();
+	/**
+	 * Implementations that keep the index up to date with {@link #register(Artifact)} and {@link #unregister(Artifact)} are never asked for this
+	 * As long as nothing has been registered, every lookup goes through these artifacts once and only indexes the ones it needs, which is as fast as it always was
+	 */
+	abstract protected Collection<? extends Artifact> getArtifacts();
+	
+	/**
+	 * Readers always use the latest published index without locking, writers build a new index and swap it in
+	 */
+	private volatile ArtifactIndex index = new ArtifactIndex();
+	private volatile boolean registered;
+	private Object indexLock = new Object();
+	
+	/**
+	 * The generated metadata per groupId:artifactId and per groupId:artifactId:version
+	 * The version is incremented whenever the index changes so we never cache metadata that was generated from an older index
+	 */
+	private Map<String, MetaData> artifactMetaData = new ConcurrentHashMap<String, MetaData>();
+	private Map<String, VersionMetaData> versionMetaData = new ConcurrentHashMap<String, VersionMetaData>();
+	private AtomicLong metaDataVersion = new AtomicLong();
+	
+	/**
+	 * The domains are compiled into a trie whenever the list is modified, the internal artifacts are only recalculated when they are next requested
+	 */
+	private List<String> domains = new DomainList();
+	private volatile DomainTrie domainTrie = new DomainTrie(Collections.<String>emptyList());
 	
-	private List<String> domains = new ArrayList<String>();
+	/**
+	 * The latest main artifact per groupId:artifactId for the internal groups, this is kept up to date with the index so it never has to be calculated from scratch
+	 * The map is only accessed while holding the index lock, it is stale after the domains change until the internal artifacts are requested
+	 * The set is an immutable copy of the map that is handed to readers, it is only made when it is requested after a change
+	 */
+	private Map<String, Artifact> internalLatest = new HashMap<String, Artifact>();
+	private boolean internalStale;
+	private volatile Set<Artifact> internalArtifacts = Collections.emptySet();
+	
+	/**
+	 * If set, the repository reports how long its operations take and how well its caches work
+	 */
+	private RepositoryMetrics metrics;
 	
 	/**
 	 * Allows you to format the resulting file name using variables:
@@ -54,138 +102,401 @@ abstract public class BaseRepository implements DomainRepository {
 	 * - $domain ('internal' or 'external')
 	 * - $type ('snapshots' or 'releases')
 	 * - $exploded: the groupId but exploded
+	 * The format is compiled once when it is set
 	 */
-	private String fileNameFormat = "$artifactId-$version.$extension";
+	private FileNameTemplate fileNameFormat = new FileNameTemplate("$artifactId-$version.$extension");
 	
 	@Override
 	public InputStream getMetaData(String groupId, String artifactId) throws IOException {
-		SimpleDateFormat formatter = new SimpleDateFormat("yyyyMMddHHmmss");
-		String xml = "<metadata>" +
-			"<groupId>" + groupId + "</groupId>" +
-			"<artifactId>" + artifactId + "</artifactId>" +
-			"<version>$latest</version>" +
-			"<versioning>" +
-			"	<latest>$latest</latest>" +
-			"	<versions>";
-		
-		Artifact lastArtifact = null;
-		for (Artifact other : getArtifacts()) {
-			if (other.getGroupId().equals(groupId) && other.getArtifactId().equals(artifactId)) {
-				xml += "<version>" + other.getVersion() + "</version>";
-				if (lastArtifact == null || other.getVersion().compareTo(lastArtifact.getVersion()) == 1)
-					lastArtifact = other;
+		long started = start();
+		MetaData metaData = getCachedMetaData(groupId, artifactId);
+		timed(Operation.GET_META_DATA, started);
+		return metaData == null ? null : metaData.getStream();
+	}
+	
+	/**
+	 * Returns the metadata about all the versions of an artifact, it is only regenerated when the index changes for that artifact
+	 */
+	public MetaData getCachedMetaData(String groupId, String artifactId) throws IOException {
+		return getCachedMetaData(getIndex(groupId, artifactId), groupId, artifactId);
+	}
+	
+	private MetaData getCachedMetaData(ArtifactIndex index, String groupId, String artifactId) throws IOException {
+		String key = groupId + ":" + artifactId;
+		MetaData metaData = artifactMetaData.get(key);
+		cached("artifactMetaData", metaData != null);
+		if (metaData == null) {
+			long version = metaDataVersion.get();
+			metaData = generateMetaData(index, groupId, artifactId);
+			if (metaData != null) {
+				artifactMetaData.put(key, metaData);
+				// the index changed while we were generating so we may have cached an outdated version, an index of the unregistered artifacts is never cached
+				if (metaDataVersion.get() != version || this.index != index) {
+					artifactMetaData.remove(key, metaData);
+				}
 			}
 		}
-		
+		return metaData;
+	}
+	
+	private MetaData generateMetaData(ArtifactIndex index, String groupId, String artifactId) throws IOException {
+		Artifact lastArtifact = index.getLatest(groupId, artifactId);
 		if (lastArtifact == null)
 			return null;
 		
-		xml += "	</versions>" +
-				"	<lastUpdated>" + formatter.format(lastArtifact.getLastModified()) + "</lastUpdated>" +
-				"</versioning></metadata>";
-		
-		xml = xml.replaceAll(Pattern.quote("$latest"), lastArtifact.getVersion());
-
-		return new ByteArrayInputStream(xml.getBytes("UTF-8"));
+		Artifact release = index.getRelease(groupId, artifactId);
+		return MetaData.forVersions(groupId, artifactId, lastArtifact.getVersion(), release == null ? null : release.getVersion(), index.getVersions(groupId, artifactId), lastArtifact.getLastModified());
 	}
 
+	/**
+	 * The same set is returned until the internal artifacts change, it can not be modified
+	 */
 	@Override
 	public Set<Artifact> getInternalArtifacts() throws IOException {
-		Set<Artifact> internal = new HashSet<Artifact>(); 
-		for (String groupId : getGroups()) {
-			if (isInternal(groupId)) {
-				for (String artifactId : getArtifacts(groupId)) {
-					List<String> versions = new ArrayList<String>(getVersions(groupId, artifactId));
-					Artifact artifact = getArtifact(groupId, artifactId, versions.get(versions.size() - 1), false);
-					if (artifact != null) {
-						internal.add(artifact);
+		long started = start();
+		Set<Artifact> internal;
+		if (!registered) {
+			DomainTrie domainTrie = this.domainTrie;
+			List<Artifact> artifacts = new ArrayList<Artifact>();
+			for (Artifact artifact : getArtifacts()) {
+				if (artifact.getGroupId() != null && domainTrie.matches(artifact.getGroupId())) {
+					artifacts.add(artifact);
+				}
+			}
+			internal = Collections.unmodifiableSet(new HashSet<Artifact>(getInternal(new ArtifactIndex().update(artifacts, Collections.<Artifact>emptyList()), domainTrie).values()));
+		}
+		else {
+			internal = internalArtifacts;
+			if (internal == null) {
+				synchronized(indexLock) {
+					if (internalStale) {
+						internalLatest = getInternal(index, domainTrie);
+						internalStale = false;
+					}
+					internal = internalArtifacts;
+					if (internal == null) {
+						internal = Collections.unmodifiableSet(new HashSet<Artifact>(internalLatest.values()));
+						internalArtifacts = internal;
 					}
 				}
 			}
 		}
+		timed(Operation.GET_INTERNAL_ARTIFACTS, started);
 		return internal;
 	}
 	
+	/**
+	 * Recalculates the latest internal artifact for the groupId:artifactId combinations that were touched by an update
+	 * Must be called while holding the index lock
+	 */
+	private void updateInternal(ArtifactIndex index, Collection<? extends Artifact> added, Collection<? extends Artifact> removed) {
+		// everything is recalculated on the next request anyway
+		if (internalStale) {
+			return;
+		}
+		DomainTrie domainTrie = this.domainTrie;
+		Map<String, Artifact> touched = new LinkedHashMap<String, Artifact>();
+		for (Collection<? extends Artifact> artifacts : Arrays.asList(removed, added)) {
+			for (Artifact artifact : artifacts) {
+				if (artifact.getArtifactId() != null && domainTrie.matches(artifact.getGroupId())) {
+					touched.put(artifact.getGroupId() + ":" + artifact.getArtifactId(), artifact);
+				}
+			}
+		}
+		boolean changed = false;
+		for (Map.Entry<String, Artifact> entry : touched.entrySet()) {
+			Artifact artifact = getLatestMain(index, entry.getValue().getGroupId(), entry.getValue().getArtifactId());
+			Artifact previous = artifact == null ? internalLatest.remove(entry.getKey()) : internalLatest.put(entry.getKey(), artifact);
+			changed |= previous != artifact;
+		}
+		if (changed) {
+			internalArtifacts = null;
+		}
+	}
+	
+	/**
+	 * Recompiles the domains, all the internal artifacts are recalculated when they are next requested
+	 */
+	private void domainsChanged() {
+		synchronized(indexLock) {
+			domainTrie = new DomainTrie(domains);
+			internalStale = true;
+			internalArtifacts = null;
+		}
+	}
+	
+	/**
+	 * The latest main artifact of every groupId:artifactId in the internal groups
+	 */
+	private static Map<String, Artifact> getInternal(ArtifactIndex index, DomainTrie domainTrie) {
+		Map<String, Artifact> latest = new HashMap<String, Artifact>();
+		if (!domainTrie.isEmpty()) {
+			for (String groupId : index.getGroups()) {
+				if (domainTrie.matches(groupId)) {
+					for (String artifactId : index.getArtifacts(groupId)) {
+						Artifact artifact = getLatestMain(index, groupId, artifactId);
+						if (artifact != null) {
+							latest.put(groupId + ":" + artifactId, artifact);
+						}
+					}
+				}
+			}
+		}
+		return latest;
+	}
+	
+	/**
+	 * The main artifact of the highest version, or null if that version only has a test artifact
+	 */
+	private static Artifact getLatestMain(ArtifactIndex index, String groupId, String artifactId) {
+		SortedSet<String> versions = index.getVersions(groupId, artifactId);
+		return versions.isEmpty() ? null : index.getArtifact(groupId, artifactId, versions.last(), false);
+	}
+	
 	@Override
 	public InputStream getMetaData(Artifact artifact) throws IOException {
-		SimpleDateFormat formatter = new SimpleDateFormat("yyyyMMddHHmmss");
-		
+		long started = start();
+		MetaData metaData = getCachedMetaData(artifact);
+		timed(Operation.GET_VERSION_META_DATA, started);
+		return metaData.getStream();
+	}
+	
+	/**
+	 * Returns the metadata about a specific version of an artifact, it is only regenerated when the artifact or the model version changes
+	 */
+	public MetaData getCachedMetaData(Artifact artifact) throws IOException {
 		// 1.1.0 is for maven 3. note that the snapshotVersions is not supported in maven 2 and may cause errors. However the "old" metadata seems to work just fine in maven 3 so might as well use that for now
 		String modelVersion = System.getProperty(PROPERTY_MODEL_VERSION, "1.0.0");
-
-		String xml = "<metadata modelVersion=\"" + modelVersion + "\">" +
-				"<groupId>" + artifact.getGroupId() + "</groupId>" +
-				"<artifactId>" + artifact.getArtifactId() + "</artifactId>" +
-				"<version>" + artifact.getVersion() + "</version>";
+		Date lastModified = artifact.getLastModified();
+		String key = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+		VersionMetaData cached = versionMetaData.get(key);
+		if (cached != null && cached.modelVersion.equals(modelVersion) && cached.metaData.getLastModified().equals(lastModified)) {
+			cached("versionMetaData", true);
+			return cached.metaData;
+		}
+		cached("versionMetaData", false);
+		long version = metaDataVersion.get();
+		cached = new VersionMetaData(modelVersion, generateMetaData(artifact, modelVersion, lastModified));
+		versionMetaData.put(key, cached);
+		if (metaDataVersion.get() != version) {
+			versionMetaData.remove(key, cached);
+		}
+		return cached.metaData;
+	}
+	
+	private MetaData generateMetaData(Artifact artifact, String modelVersion, Date lastModified) throws IOException {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<metadata modelVersion=\"").append(modelVersion).append("\">")
+			.append("<groupId>").append(artifact.getGroupId()).append("</groupId>")
+			.append("<artifactId>").append(artifact.getArtifactId()).append("</artifactId>")
+			.append("<version>").append(artifact.getVersion()).append("</version>");
 		
 		// it's a snapshot
 		if (artifact.getVersion().endsWith("-SNAPSHOT")) {
-			int buildNumber = (int) (artifact.getLastModified().getTime() / 1000);
-			String lastModified = formatter.format(artifact.getLastModified());
-			xml += "<versioning>" +
-					"	<snapshot>" +
-					"		<timestamp>" + lastModified.replaceAll("^([0-9]{8})", "$1.") + "</timestamp>" +
-					"		<buildNumber>" + buildNumber + "</buildNumber>" +
-					"	</snapshot>" +
-					"	<lastUpdated>" + lastModified + "</lastUpdated>";
+			int buildNumber = (int) (lastModified.getTime() / 1000);
+			String formatted = new SimpleDateFormat("yyyyMMddHHmmss").format(lastModified);
+			String timestamp = formatted.substring(0, 8) + "." + formatted.substring(8);
+			xml.append("<versioning>")
+				.append("	<snapshot>")
+				.append("		<timestamp>").append(timestamp).append("</timestamp>")
+				.append("		<buildNumber>").append(buildNumber).append("</buildNumber>")
+				.append("	</snapshot>")
+				.append("	<lastUpdated>").append(formatted).append("</lastUpdated>");
 			
 			// only add this for maven 3.x
 			// note that when enabling this, maven does not always update snapshots from the repo (only updates the metadata). So likely there is still a bug in it
 			if (modelVersion.equals("1.1.0")) {
-				xml += "<snapshotVersions>" + 
-						"	<snapshotVersion>" +
-						"		<extension>" + artifact.getArtifactId().replaceAll("^.*?\\.([^.]+)$", "$1") + "</extension>" +
-						"		<value>" + artifact.getVersion().replaceAll("-SNAPSHOT", "-" + formatter.format(artifact.getLastModified()).replaceAll("^([0-9]{8})([0-9]{6})$", "$1.$2-" + buildNumber)) + "</value>" +
-						"		<updated>" + lastModified + "</updated>" +
-						"	</snapshotVersion>" +
-						"</snapshotVersions>";
+				String artifactId = artifact.getArtifactId();
+				String version = artifact.getVersion();
+				xml.append("<snapshotVersions>")
+					.append("	<snapshotVersion>")
+					.append("		<extension>").append(artifactId.substring(artifactId.lastIndexOf('.') + 1)).append("</extension>")
+					.append("		<value>").append(version.substring(0, version.length() - "-SNAPSHOT".length())).append("-").append(timestamp).append("-").append(buildNumber).append("</value>")
+					.append("		<updated>").append(formatted).append("</updated>")
+					.append("	</snapshotVersion>")
+					.append("</snapshotVersions>");
 			}
 			
-			xml += "</versioning>";
+			xml.append("</versioning>");
 		}
-		xml += "</metadata>";
-		return new ByteArrayInputStream(xml.getBytes("UTF-8"));
+		xml.append("</metadata>");
+		return new MetaData(xml.toString().getBytes("UTF-8"), lastModified);
+	}
+	
+	/**
+	 * Drops the cached metadata that depends on the coordinates of this artifact
+	 */
+	private void invalidateMetaData(Artifact artifact) {
+		metaDataVersion.incrementAndGet();
+		artifactMetaData.remove(artifact.getGroupId() + ":" + artifact.getArtifactId());
+		versionMetaData.remove(artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion());
 	}
 
 	@Override
 	public SortedSet<String> getGroups() throws IOException {
-		SortedSet<String> groups = new TreeSet<String>();
-		for (Artifact artifact : getArtifacts()) {
-			groups.add(artifact.getGroupId());
+		long started = start();
+		SortedSet<String> groups;
+		if (registered) {
+			groups = index.getGroups();
+		}
+		else {
+			groups = new TreeSet<String>();
+			for (Artifact artifact : getArtifacts()) {
+				if (artifact.getGroupId() != null && artifact.getArtifactId() != null && artifact.getVersion() != null) {
+					groups.add(artifact.getGroupId());
+				}
+			}
+			groups = Collections.unmodifiableSortedSet(groups);
 		}
+		timed(Operation.GET_GROUPS, started);
 		return groups;
 	}
 
 	@Override
 	public SortedSet<String> getArtifacts(String groupId) throws IOException {
-		SortedSet<String> artifacts = new TreeSet<String>();
-		for (Artifact artifact : getArtifacts()) {
-			if (artifact.getGroupId().equals(groupId)) {
-				artifacts.add(artifact.getArtifactId());
+		long started = start();
+		SortedSet<String> artifacts;
+		if (registered) {
+			artifacts = index.getArtifacts(groupId);
+		}
+		else {
+			artifacts = new TreeSet<String>();
+			for (Artifact artifact : getArtifacts()) {
+				if (groupId.equals(artifact.getGroupId()) && artifact.getArtifactId() != null && artifact.getVersion() != null) {
+					artifacts.add(artifact.getArtifactId());
+				}
 			}
+			artifacts = Collections.unmodifiableSortedSet(artifacts);
 		}
+		timed(Operation.GET_ARTIFACTS, started);
 		return artifacts;
 	}
 
 	@Override
 	public SortedSet<String> getVersions(String groupId, String artifactId) throws IOException {
-		SortedSet<String> versions = new TreeSet<String>();
-		for (Artifact artifact : getArtifacts()) {
-			if (artifact.getGroupId().equals(groupId) && artifact.getArtifactId().equals(artifactId)) {
-				versions.add(artifact.getVersion());
-			}
-		}
+		long started = start();
+		SortedSet<String> versions = getIndex(groupId, artifactId).getVersions(groupId, artifactId);
+		timed(Operation.GET_VERSIONS, started);
 		return versions;
 	}
 
 	@Override
 	public Artifact getArtifact(String groupId, String artifactId, String version, boolean isTest) {
+		long started = start();
+		Artifact artifact = getIndex(groupId, artifactId).getArtifact(groupId, artifactId, version, isTest);
+		timed(Operation.GET_ARTIFACT, started);
+		return artifact;
+	}
+	
+	/**
+	 * Resolves all the requests against one snapshot of the index so the artifacts and versions are consistent with each other, even if the index changes during the batch
+	 * The metadata comes from the same caches as the single lookups, a cached entry can be newer than the snapshot if the index changed in the meantime
+	 */
+	@Override
+	public ResolveResult resolve(List<ResolveRequest> requests) throws IOException {
+		long started = start();
+		ArtifactIndex index = getIndex();
+		ResolveResult result = new ResolveResult(requests.size());
+		for (ResolveRequest request : requests) {
+			if (request.getVersion() == null) {
+				MetaData metaData = getCachedMetaData(index, request.getGroupId(), request.getArtifactId());
+				result.add(new ResolveResult.Resolution(request, null, index.getVersions(request.getGroupId(), request.getArtifactId()), metaData == null ? null : metaData.getContent()));
+			}
+			else {
+				Artifact artifact = index.getArtifact(request.getGroupId(), request.getArtifactId(), request.getVersion(), request.isTest());
+				result.add(new ResolveResult.Resolution(request, artifact, null, artifact == null ? null : getCachedMetaData(artifact).getContent()));
+			}
+		}
+		timed(Operation.RESOLVE, started);
+		return result;
+	}
+	
+	/**
+	 * Returns the start time of an operation, this is 0 if no metrics are being collected
+	 */
+	protected long start() {
+		return metrics == null ? 0 : System.nanoTime();
+	}
+	
+	/**
+	 * Reports an operation that was started with {@link #start()}
+	 */
+	protected void timed(Operation operation, long started) {
+		RepositoryMetrics metrics = this.metrics;
+		if (metrics != null && started != 0) {
+			metrics.timed(operation, System.nanoTime() - started);
+		}
+	}
+	
+	protected void cached(String cache, boolean hit) {
+		RepositoryMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.cached(cache, hit);
+		}
+	}
+
+	/**
+	 * Adds a new or updated artifact to the lookup index, implementations must call this whenever they discover an artifact
+	 */
+	protected void register(Artifact artifact) {
+		update(Arrays.asList(artifact), Collections.<Artifact>emptyList());
+	}
+	
+	/**
+	 * Removes an artifact from the lookup index, implementations must call this whenever an artifact is replaced or removed
+	 */
+	protected void unregister(Artifact artifact) {
+		update(Collections.<Artifact>emptyList(), Arrays.asList(artifact));
+	}
+	
+	/**
+	 * Applies a batch of changes to the lookup index, readers see either none or all of them
+	 */
+	protected void update(Collection<? extends Artifact> added, Collection<? extends Artifact> removed) {
+		for (Artifact artifact : added) {
+			if (artifact instanceof BaseArtifact) {
+				((BaseArtifact) artifact).setRepository(this);
+			}
+		}
+		synchronized(indexLock) {
+			registered = true;
+			index = index.update(added, removed);
+			updateInternal(index, added, removed);
+		}
+		// only invalidate once the new index is visible, otherwise the metadata could be regenerated from the old one
+		for (Artifact artifact : removed) {
+			invalidateMetaData(artifact);
+		}
+		for (Artifact artifact : added) {
+			invalidateMetaData(artifact);
+		}
+	}
+	
+	/**
+	 * The current snapshot of the lookup index, it never changes so it can be used for multiple consistent lookups
+	 * If nothing was ever registered, all the artifacts are indexed on every call
+	 */
+	protected ArtifactIndex getIndex() {
+		if (!registered) {
+			return new ArtifactIndex().update(getArtifacts(), Collections.<Artifact>emptyList());
+		}
+		return index;
+	}
+	
+	/**
+	 * An index that contains at least the given artifact, if nothing was ever registered only the artifacts with these coordinates are indexed
+	 */
+	private ArtifactIndex getIndex(String groupId, String artifactId) {
+		if (registered) {
+			return index;
+		}
+		List<Artifact> artifacts = new ArrayList<Artifact>();
 		for (Artifact artifact : getArtifacts()) {
-			if (artifact.getGroupId().equals(groupId) && artifact.getArtifactId().equals(artifactId) && artifact.getVersion().equals(version) && artifact.isTest() == isTest) {
-				return artifact;
+			if (groupId.equals(artifact.getGroupId()) && artifactId.equals(artifact.getArtifactId())) {
+				artifacts.add(artifact);
 			}
 		}
-		return null;
+		return new ArtifactIndex().update(artifacts, Collections.<Artifact>emptyList());
 	}
 
 	@Override
@@ -194,11 +505,7 @@ abstract public class BaseRepository implements DomainRepository {
 	}
 	
 	protected boolean isInternal(String groupId) {
-		for (String domain : domains) {
-			if (groupId.equals(domain) || groupId.startsWith(domain + "."))
-				return true;
-		}
-		return false;
+		return domainTrie.matches(groupId);
 	}
 	
 	@Override
@@ -207,20 +514,82 @@ abstract public class BaseRepository implements DomainRepository {
 	}
 	
 	protected String formatFileName(String groupId, String artifactId, String version, String packaging) {
-		return fileNameFormat
-			.replaceAll("\\$domain", isInternal(groupId) ? "internal" : "external")
-			.replaceAll("\\$type", version.endsWith("-SNAPSHOT") ? "snapshots" : "releases")
-			.replaceAll("\\$groupId", groupId)
-			.replaceAll("\\$exploded", groupId.replaceAll("\\.", "/"))
-			.replaceAll("\\$artifactId", Matcher.quoteReplacement(artifactId))
-			.replaceAll("\\$version", Matcher.quoteReplacement(version))
-			.replaceAll("\\$extension", Matcher.quoteReplacement(packaging));
+		return fileNameFormat.format(groupId, artifactId, version, packaging, isInternal(groupId));
+	}
+	
+	/**
+	 * A regular list of domains that rebuilds the trie whenever it is modified
+	 */
+	private class DomainList extends AbstractList<String> {
+		private List<String> domains = new ArrayList<String>();
+		
+		@Override
+		public String get(int index) {
+			return domains.get(index);
+		}
+		@Override
+		public int size() {
+			return domains.size();
+		}
+		@Override
+		public void add(int index, String domain) {
+			domains.add(index, domain);
+			modCount++;
+			domainsChanged();
+		}
+		@Override
+		public boolean addAll(int index, Collection<? extends String> collection) {
+			boolean changed = domains.addAll(index, collection);
+			if (changed) {
+				modCount++;
+				domainsChanged();
+			}
+			return changed;
+		}
+		@Override
+		public String set(int index, String domain) {
+			String previous = domains.set(index, domain);
+			domainsChanged();
+			return previous;
+		}
+		@Override
+		public String remove(int index) {
+			String previous = domains.remove(index);
+			modCount++;
+			domainsChanged();
+			return previous;
+		}
+		@Override
+		protected void removeRange(int fromIndex, int toIndex) {
+			domains.subList(fromIndex, toIndex).clear();
+			modCount++;
+			domainsChanged();
+		}
+	}
+	
+	private static class VersionMetaData {
+		private String modelVersion;
+		private MetaData metaData;
+		
+		private VersionMetaData(String modelVersion, MetaData metaData) {
+			this.modelVersion = modelVersion;
+			this.metaData = metaData;
+		}
 	}
 	
 	public String getFileNameFormat() {
-		return fileNameFormat;
+		return fileNameFormat.getFormat();
 	}
 	public void setFileNameFormat(String format) {
-		this.fileNameFormat = format;
+		this.fileNameFormat = new FileNameTemplate(format);
+	}
+	protected FileNameTemplate getFileNameTemplate() {
+		return fileNameFormat;
+	}
+	public RepositoryMetrics getMetrics() {
+		return metrics;
+	}
+	public void setMetrics(RepositoryMetrics metrics) {
+		this.metrics = metrics;
 	}
 }
@@ -0,0 +1,97 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The domains of a repository as a trie of groupId segments, so "be.nabu" is stored as "be" > "nabu"
+ * A groupId is internal if walking its segments passes a node that ends a domain, this takes as many steps as the groupId has segments regardless of the amount of domains
+ * The trie is immutable, a change in the domains builds a new one
+ */
+class DomainTrie {
+
+	private Node root = new Node();
+	
+	DomainTrie(Collection<String> domains) {
+		for (String domain : domains) {
+			if (domain != null) {
+				Node node = root;
+				int start = 0;
+				while (true) {
+					int end = domain.indexOf('.', start);
+					node = node.getOrCreate(end < 0 ? domain.substring(start) : domain.substring(start, end));
+					if (end < 0) {
+						break;
+					}
+					start = end + 1;
+				}
+				node.domain = true;
+			}
+		}
+	}
+	
+	/**
+	 * Whether the groupId is one of the domains or a subgroup of one
+	 */
+	boolean matches(String groupId) {
+		if (groupId == null) {
+			return false;
+		}
+		Node node = root;
+		int start = 0;
+		while (true) {
+			int end = groupId.indexOf('.', start);
+			node = node.children == null ? null : node.children.get(end < 0 ? groupId.substring(start) : groupId.substring(start, end));
+			if (node == null) {
+				return false;
+			}
+			else if (node.domain) {
+				return true;
+			}
+			else if (end < 0) {
+				return false;
+			}
+			start = end + 1;
+		}
+	}
+	
+	boolean isEmpty() {
+		return root.children == null;
+	}
+	
+	private static class Node {
+		private Map<String, Node> children;
+		private boolean domain;
+		
+		private Node getOrCreate(String segment) {
+			if (children == null) {
+				children = new HashMap<String, Node>();
+			}
+			Node child = children.get(segment);
+			if (child == null) {
+				child = new Node();
+				children.put(segment, child);
+			}
+			return child;
+		}
+	}
+}
@@ -0,0 +1,329 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A file name format like "$exploded/$artifactId/$version/$artifactId-$version.$extension" compiled into a list of tokens
+ * It can render the file name for a set of coordinates in a single pass and it can parse a file name back into coordinates with a single regular expression
+ * Any "$" that is not followed by a known variable is kept as is
+ */
+public class FileNameTemplate {
+
+	public enum Variable {
+		DOMAIN("domain"),
+		TYPE("type"),
+		GROUP_ID("groupId"),
+		EXPLODED("exploded"),
+		ARTIFACT_ID("artifactId"),
+		VERSION("version"),
+		EXTENSION("extension");
+
+		private String name;
+
+		private Variable(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	private static final String TEST_SUFFIX = "-tests";
+
+	/**
+	 * How many characters the expression may read while matching a single path, a file name that needs more is not parsed
+	 * Variables that are separated by characters they can also contain make the matching polynomial in the length of the path, this keeps contrived names from stalling a scan
+	 */
+	private static final int MAX_READS = 1000000;
+
+	private String format;
+
+	/**
+	 * A token is either a literal string or a variable, the other one is null
+	 */
+	private String [] literals;
+	private Variable [] variables;
+
+	/**
+	 * Matches a path in two alternatives, the first only accepts versions that start with a digit
+	 * For each alternative the group of every variable, a variable that occurs more than once is a back reference to its first group
+	 */
+	private Pattern pattern;
+	private List<Map<Variable, Integer>> groups = new ArrayList<Map<Variable, Integer>>();
+
+	public FileNameTemplate(String format) {
+		this.format = format;
+		List<String> literals = new ArrayList<String>();
+		List<Variable> variables = new ArrayList<Variable>();
+		StringBuilder literal = new StringBuilder();
+		int position = 0;
+		while (position < format.length()) {
+			Variable variable = null;
+			if (format.charAt(position) == '$') {
+				for (Variable possible : Variable.values()) {
+					if (format.startsWith(possible.getName(), position + 1)) {
+						variable = possible;
+						break;
+					}
+				}
+			}
+			if (variable == null) {
+				literal.append(format.charAt(position++));
+			}
+			else {
+				if (literal.length() > 0) {
+					literals.add(literal.toString());
+					variables.add(null);
+					literal.setLength(0);
+				}
+				literals.add(null);
+				variables.add(variable);
+				position += variable.getName().length() + 1;
+			}
+		}
+		if (literal.length() > 0) {
+			literals.add(literal.toString());
+			variables.add(null);
+		}
+		this.literals = literals.toArray(new String[literals.size()]);
+		this.variables = variables.toArray(new Variable[variables.size()]);
+		this.pattern = compile();
+	}
+
+	private Pattern compile() {
+		StringBuilder regex = new StringBuilder();
+		int group = 0;
+		for (boolean numericVersion : new boolean [] { true, false }) {
+			regex.append(regex.length() == 0 ? "(?:" : ")|(?:");
+			Map<Variable, Integer> indexes = new EnumMap<Variable, Integer>(Variable.class);
+			for (int i = 0; i < literals.length; i++) {
+				if (variables[i] == null) {
+					regex.append(Pattern.quote(literals[i]));
+				}
+				else if (indexes.containsKey(variables[i])) {
+					regex.append('\\').append(indexes.get(variables[i]));
+				}
+				else {
+					indexes.put(variables[i], ++group);
+					regex.append('(').append(getExpression(variables[i], numericVersion)).append(')');
+				}
+			}
+			groups.add(indexes);
+		}
+		return Pattern.compile(regex.append(')').toString(), Pattern.DOTALL);
+	}
+
+	/**
+	 * The variables match as little as possible so the first split is used
+	 */
+	private static String getExpression(Variable variable, boolean numericVersion) {
+		switch(variable) {
+			case DOMAIN: return "internal|external";
+			case TYPE: return "snapshots|releases";
+			case EXPLODED: return ".+?";
+			case EXTENSION: return "[^/.]+?";
+			case VERSION: return numericVersion ? "\\p{Nd}[^/]*?" : "[^/]+?";
+			default: return "[^/]+?";
+		}
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	public String format(String groupId, String artifactId, String version, String packaging, boolean isInternal) {
+		StringBuilder builder = new StringBuilder(format.length() + 64);
+		for (int i = 0; i < literals.length; i++) {
+			if (variables[i] == null) {
+				builder.append(literals[i]);
+			}
+			else {
+				switch(variables[i]) {
+					case DOMAIN: builder.append(isInternal ? "internal" : "external"); break;
+					case TYPE: builder.append(version.endsWith("-SNAPSHOT") ? "snapshots" : "releases"); break;
+					case GROUP_ID: builder.append(groupId); break;
+					case EXPLODED: builder.append(groupId.replace('.', '/')); break;
+					case ARTIFACT_ID: builder.append(artifactId); break;
+					case VERSION: builder.append(version); break;
+					case EXTENSION: builder.append(packaging); break;
+				}
+			}
+		}
+		return builder.toString();
+	}
+
+	public boolean contains(Variable variable) {
+		for (Variable possible : variables) {
+			if (possible == variable) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Whether file names in this format contain all the coordinates
+	 */
+	public boolean isReversible() {
+		return (contains(Variable.GROUP_ID) || contains(Variable.EXPLODED)) && contains(Variable.ARTIFACT_ID) && contains(Variable.VERSION);
+	}
+
+	/**
+	 * Parses a path relative to the root of the repository (using "/" as separator) back into coordinates
+	 * A "-tests" suffix right before the extension marks a test artifact, this is how test artifacts are stored
+	 * Returns null if the path does not match the format or does not contain all the coordinates
+	 * Apart from $exploded, variables never span a "/" and the extension never contains a "."
+	 * If an artifactId and version are separated by a "-" (which both can contain), the first split where the version starts with a digit is used
+	 * If the format contains both $groupId and $exploded, they must match
+	 */
+	public Coordinates parse(String path) {
+		if (!isReversible()) {
+			return null;
+		}
+		Coordinates coordinates = null;
+		int extension = path.lastIndexOf('.');
+		if (extension > TEST_SUFFIX.length() && path.startsWith(TEST_SUFFIX, extension - TEST_SUFFIX.length())) {
+			coordinates = parse(path.substring(0, extension - TEST_SUFFIX.length()) + path.substring(extension), true);
+		}
+		return coordinates == null ? parse(path, false) : coordinates;
+	}
+
+	private Coordinates parse(String path, boolean isTest) {
+		Matcher matcher = pattern.matcher(new BoundedPath(path));
+		try {
+			if (!matcher.matches()) {
+				return null;
+			}
+		}
+		catch (LimitReachedException e) {
+			return null;
+		}
+		Map<Variable, Integer> indexes = groups.get(0);
+		// every group of an alternative is mandatory, so if one group is set that alternative matched
+		if (matcher.group(indexes.values().iterator().next()) == null) {
+			indexes = groups.get(1);
+		}
+		Map<Variable, String> values = new EnumMap<Variable, String>(Variable.class);
+		for (Map.Entry<Variable, Integer> index : indexes.entrySet()) {
+			values.put(index.getKey(), matcher.group(index.getValue()));
+		}
+		String groupId = values.get(Variable.GROUP_ID);
+		String exploded = values.get(Variable.EXPLODED);
+		if (groupId == null) {
+			groupId = exploded.replace('/', '.');
+		}
+		// a back reference can not translate between the two forms of the group id so we check it afterwards, the one that comes last has to match the first
+		else if (exploded != null) {
+			boolean matches = indexes.get(Variable.EXPLODED) < indexes.get(Variable.GROUP_ID) ? groupId.equals(exploded.replace('/', '.')) : exploded.equals(groupId.replace('.', '/'));
+			if (!matches) {
+				return null;
+			}
+		}
+		String extension = values.get(Variable.EXTENSION);
+		if (extension == null) {
+			int index = path.lastIndexOf('.');
+			extension = index < 0 ? null : path.substring(index + 1);
+		}
+		return new Coordinates(groupId, values.get(Variable.ARTIFACT_ID), values.get(Variable.VERSION), extension, isTest);
+	}
+
+	@Override
+	public String toString() {
+		return format;
+	}
+
+	/**
+	 * Counts the characters that are read while matching
+	 */
+	private static class BoundedPath implements CharSequence {
+		private String path;
+		private int reads;
+
+		private BoundedPath(String path) {
+			this.path = path;
+		}
+
+		@Override
+		public int length() {
+			return path.length();
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (++reads > MAX_READS) {
+				throw new LimitReachedException();
+			}
+			return path.charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return path.subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return path;
+		}
+	}
+
+	private static class LimitReachedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private LimitReachedException() {
+			// the stack trace is of no use to anyone
+			super(null, null, false, false);
+		}
+	}
+
+	public static class Coordinates {
+		private String groupId, artifactId, version, extension;
+		private boolean test;
+
+		public Coordinates(String groupId, String artifactId, String version, String extension, boolean test) {
+			this.groupId = groupId;
+			this.artifactId = artifactId;
+			this.version = version;
+			this.extension = extension;
+			this.test = test;
+		}
+		public String getGroupId() {
+			return groupId;
+		}
+		public String getArtifactId() {
+			return artifactId;
+		}
+		public String getVersion() {
+			return version;
+		}
+		public String getExtension() {
+			return extension;
+		}
+		public boolean isTest() {
+			return test;
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import be.nabu.libs.maven.api.RepositoryMetrics;
+
+/**
+ * Keeps the metrics of a repository in lock-free counters and histograms and exposes them over JMX
+ * Call {@link #register()} to publish them on the platform mbean server under "be.nabu.libs.maven:type=RepositoryMetrics,name=..."
+ */
+public class JmxRepositoryMetrics implements RepositoryMetrics, RepositoryMetricsMXBean {
+
+	private String name;
+	private ObjectName objectName;
+	
+	private Map<Operation, LatencyHistogram> latencies = new EnumMap<Operation, LatencyHistogram>(Operation.class);
+	private Map<String, CacheCounter> caches = new ConcurrentHashMap<String, CacheCounter>();
+	private LongAdder scans = new LongAdder(), visited = new LongAdder(), parsed = new LongAdder(), skipped = new LongAdder(), served = new LongAdder();
+	private AtomicLong lastScan = new AtomicLong();
+	
+	public JmxRepositoryMetrics(String name) {
+		this.name = name;
+		// the map is filled up front so it is never modified afterwards
+		for (Operation operation : Operation.values()) {
+			latencies.put(operation, new LatencyHistogram());
+		}
+	}
+	
+	public void register() throws JMException {
+		if (objectName == null) {
+			objectName = new ObjectName("be.nabu.libs.maven:type=RepositoryMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		}
+	}
+	
+	public void unregister() throws JMException {
+		if (objectName != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+	
+	@Override
+	public void timed(Operation operation, long nanos) {
+		latencies.get(operation).record(nanos);
+	}
+
+	@Override
+	public void scanned(long nanos, long visited, long parsed, long skipped) {
+		scans.increment();
+		lastScan.set(nanos / 1000000);
+		this.visited.add(visited);
+		this.parsed.add(parsed);
+		this.skipped.add(skipped);
+	}
+
+	@Override
+	public void served(long bytes) {
+		served.add(bytes);
+	}
+
+	@Override
+	public void cached(String cache, boolean hit) {
+		CacheCounter counter = caches.get(cache);
+		if (counter == null) {
+			caches.putIfAbsent(cache, new CacheCounter());
+			counter = caches.get(cache);
+		}
+		if (hit) {
+			counter.hits.increment();
+		}
+		else {
+			counter.misses.increment();
+		}
+	}
+	
+	public LatencyHistogram getLatency(Operation operation) {
+		return latencies.get(operation);
+	}
+
+	@Override
+	public long getScans() {
+		return scans.sum();
+	}
+
+	@Override
+	public long getLastScanMillis() {
+		return lastScan.get();
+	}
+
+	@Override
+	public long getFilesVisited() {
+		return visited.sum();
+	}
+
+	@Override
+	public long getFilesParsed() {
+		return parsed.sum();
+	}
+
+	@Override
+	public long getFilesSkipped() {
+		return skipped.sum();
+	}
+
+	@Override
+	public long getBytesServed() {
+		return served.sum();
+	}
+
+	@Override
+	public Map<String, Long> getOperationCounts() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (Map.Entry<Operation, LatencyHistogram> entry : latencies.entrySet()) {
+			counts.put(entry.getKey().name(), entry.getValue().getCount());
+		}
+		return counts;
+	}
+
+	@Override
+	public Map<String, Double> getMeanLatencies() {
+		Map<String, Double> result = new TreeMap<String, Double>();
+		for (Map.Entry<Operation, LatencyHistogram> entry : latencies.entrySet()) {
+			result.put(entry.getKey().name(), entry.getValue().getMean() / 1000);
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Double> getMedianLatencies() {
+		return getPercentiles(50);
+	}
+
+	@Override
+	public Map<String, Double> get99thPercentileLatencies() {
+		return getPercentiles(99);
+	}
+
+	@Override
+	public Map<String, Double> getMaxLatencies() {
+		return getPercentiles(100);
+	}
+	
+	private Map<String, Double> getPercentiles(double percentile) {
+		Map<String, Double> result = new TreeMap<String, Double>();
+		for (Map.Entry<Operation, LatencyHistogram> entry : latencies.entrySet()) {
+			result.put(entry.getKey().name(), entry.getValue().getPercentile(percentile) / 1000d);
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Double> getCacheHitRatios() {
+		Map<String, Double> ratios = new TreeMap<String, Double>();
+		for (Map.Entry<String, CacheCounter> entry : caches.entrySet()) {
+			long hits = entry.getValue().hits.sum(), total = hits + entry.getValue().misses.sum();
+			ratios.put(entry.getKey(), total == 0 ? 0 : (double) hits / total);
+		}
+		return ratios;
+	}
+
+	@Override
+	public void reset() {
+		for (LatencyHistogram histogram : latencies.values()) {
+			histogram.reset();
+		}
+		caches.clear();
+		scans.reset();
+		visited.reset();
+		parsed.reset();
+		skipped.reset();
+		served.reset();
+		lastScan.set(0);
+	}
+	
+	private static class CacheCounter {
+		private LongAdder hits = new LongAdder(), misses = new LongAdder();
+	}
+}
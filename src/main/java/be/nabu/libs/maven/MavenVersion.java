@@ -0,0 +1,294 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+package be.nabu.libs.maven;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A parsed version that sorts according to the maven rules:
+ * - numeric segments are compared as numbers so 1.10 comes after 1.9
+ * - qualifiers are ordered alpha < beta < milestone < rc = cr < snapshot < (release) = ga = final < sp, unknown qualifiers come after that in lexical order
+ * - trailing zeroes and release qualifiers are ignored so 1 = 1.0 = 1.0.0 = 1-ga
+ * Parse it once and keep it around, comparing parsed versions does not allocate anything
+ */
+public class MavenVersion implements Comparable<MavenVersion> {
+	
+	private static final List<String> QUALIFIERS = Arrays.asList("alpha", "beta", "milestone", "rc", "snapshot", "", "sp");
+	
+	private static final String RELEASE_QUALIFIER = String.valueOf(QUALIFIERS.indexOf(""));
+	
+	private String version;
+	private ListItem items;
+	
+	private MavenVersion(String version, ListItem items) {
+		this.version = version;
+		this.items = items;
+	}
+	
+	public static MavenVersion parse(String version) {
+		String lower = version.toLowerCase(Locale.ENGLISH);
+		ListItem items = new ListItem();
+		ListItem list = items;
+		Deque<ListItem> stack = new ArrayDeque<ListItem>();
+		stack.push(list);
+		
+		boolean isDigit = false;
+		int start = 0;
+		for (int i = 0; i < lower.length(); i++) {
+			char character = lower.charAt(i);
+			if (character == '.' || character == '-') {
+				list.add(i == start ? IntItem.ZERO : parseItem(isDigit, lower.substring(start, i)));
+				start = i + 1;
+				// everything after a dash is a sublist
+				if (character == '-') {
+					ListItem child = new ListItem();
+					list.add(child);
+					list = child;
+					stack.push(list);
+				}
+			}
+			else if (Character.isDigit(character)) {
+				// a qualifier directly followed by a number, e.g. "rc1" is treated like "rc-1"
+				if (!isDigit && i > start) {
+					list.add(new StringItem(lower.substring(start, i), true));
+					start = i;
+					ListItem child = new ListItem();
+					list.add(child);
+					list = child;
+					stack.push(list);
+				}
+				isDigit = true;
+			}
+			else {
+				// a number directly followed by a qualifier, e.g. "1rc" is treated like "1-rc"
+				if (isDigit && i > start) {
+					list.add(parseItem(true, lower.substring(start, i)));
+					start = i;
+					ListItem child = new ListItem();
+					list.add(child);
+					list = child;
+					stack.push(list);
+				}
+				isDigit = false;
+			}
+		}
+		if (lower.length() > start) {
+			list.add(parseItem(isDigit, lower.substring(start)));
+		}
+		while (!stack.isEmpty()) {
+			stack.pop().normalize();
+		}
+		return new MavenVersion(version, items);
+	}
+	
+	private static Item parseItem(boolean isDigit, String value) {
+		return isDigit ? new IntItem(value) : new StringItem(value, false);
+	}
+	
+	public boolean isSnapshot() {
+		return version.endsWith("-SNAPSHOT");
+	}
+
+	@Override
+	public int compareTo(MavenVersion other) {
+		return items.compareTo(other.items);
+	}
+	
+	@Override
+	public boolean equals(Object object) {
+		return object instanceof MavenVersion && compareTo((MavenVersion) object) == 0;
+	}
+	
+	@Override
+	public int hashCode() {
+		return items.toString().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return version;
+	}
+	
+	private interface Item {
+		/**
+		 * Compares to another item, null means the other version has no item at this position
+		 */
+		public int compareTo(Item item);
+		public boolean isNull();
+	}
+	
+	private static class IntItem implements Item {
+		private static final IntItem ZERO = new IntItem("0");
+		
+		// most segments fit in a long, only very large ones need a big integer
+		private long value;
+		private BigInteger big;
+		
+		private IntItem(String value) {
+			if (value.length() < 19) {
+				this.value = Long.parseLong(value);
+			}
+			else {
+				this.big = new BigInteger(value);
+				if (big.bitLength() < 64) {
+					this.value = big.longValue();
+					this.big = null;
+				}
+			}
+		}
+		
+		@Override
+		public int compareTo(Item item) {
+			if (item == null) {
+				return isNull() ? 0 : 1;
+			}
+			else if (item instanceof IntItem) {
+				IntItem other = (IntItem) item;
+				if (big == null && other.big == null) {
+					return value < other.value ? -1 : (value == other.value ? 0 : 1);
+				}
+				return toBigInteger().compareTo(other.toBigInteger());
+			}
+			// numbers come after qualifiers and sublists
+			return 1;
+		}
+		
+		private BigInteger toBigInteger() {
+			return big == null ? BigInteger.valueOf(value) : big;
+		}
+		
+		@Override
+		public boolean isNull() {
+			return big == null && value == 0;
+		}
+		
+		@Override
+		public String toString() {
+			return big == null ? Long.toString(value) : big.toString();
+		}
+	}
+	
+	private static class StringItem implements Item {
+		private String value, comparable;
+		
+		private StringItem(String value, boolean followedByDigit) {
+			if (followedByDigit && value.length() == 1) {
+				switch (value.charAt(0)) {
+					case 'a': value = "alpha"; break;
+					case 'b': value = "beta"; break;
+					case 'm': value = "milestone"; break;
+				}
+			}
+			if (value.equals("ga") || value.equals("final") || value.equals("release")) {
+				value = "";
+			}
+			else if (value.equals("cr")) {
+				value = "rc";
+			}
+			this.value = value;
+			int index = QUALIFIERS.indexOf(value);
+			this.comparable = index < 0 ? QUALIFIERS.size() + "-" + value : String.valueOf(index);
+		}
+		
+		@Override
+		public int compareTo(Item item) {
+			if (item == null) {
+				return comparable.compareTo(RELEASE_QUALIFIER);
+			}
+			else if (item instanceof StringItem) {
+				return comparable.compareTo(((StringItem) item).comparable);
+			}
+			return -1;
+		}
+		
+		@Override
+		public boolean isNull() {
+			return comparable.equals(RELEASE_QUALIFIER);
+		}
+		
+		@Override
+		public String toString() {
+			return value;
+		}
+	}
+	
+	private static class ListItem extends ArrayList<Item> implements Item {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Drops the trailing items that don't influence the ordering
+		 */
+		private void normalize() {
+			for (int i = size() - 1; i >= 0; i--) {
+				Item item = get(i);
+				if (item.isNull()) {
+					remove(i);
+				}
+				else if (!(item instanceof ListItem)) {
+					break;
+				}
+			}
+			trimToSize();
+		}
+		
+		@Override
+		public int compareTo(Item item) {
+			if (item == null) {
+				return isEmpty() ? 0 : get(0).compareTo(null);
+			}
+			else if (item instanceof IntItem) {
+				return -1;
+			}
+			else if (item instanceof StringItem) {
+				return 1;
+			}
+			ListItem other = (ListItem) item;
+			for (int i = 0; i < Math.max(size(), other.size()); i++) {
+				Item leftItem = i < size() ? get(i) : null;
+				Item rightItem = i < other.size() ? other.get(i) : null;
+				int result = leftItem == null ? (rightItem == null ? 0 : -1 * rightItem.compareTo(null)) : leftItem.compareTo(rightItem);
+				if (result != 0) {
+					return result;
+				}
+			}
+			return 0;
+		}
+		
+		@Override
+		public boolean isNull() {
+			return isEmpty();
+		}
+		
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			for (Item item : this) {
+				if (builder.length() > 0) {
+					builder.append(item instanceof ListItem ? '-' : '.');
+				}
+				builder.append(item);
+			}
+			return builder.toString();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+package be.nabu.libs.maven;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+
+import be.nabu.libs.maven.RepositoryUtils.HashAlgorithm;
+
+/**
+ * A generated maven-metadata.xml that is encoded once and can be served many times
+ * The last modified and the etag allow a front end to answer conditional requests without regenerating anything
+ */
+public class MetaData {
+	
+	private byte [] content;
+	private Date lastModified;
+	private String etag;
+	
+	public MetaData(byte [] content, Date lastModified) {
+		this.content = content;
+		this.lastModified = lastModified;
+		this.etag = "\"" + RepositoryUtils.toHex(HashAlgorithm.SHA1.newDigest().digest(content)) + "\"";
+	}
+
+	/**
+	 * Generates the metadata about all the versions of an artifact, the release is optional
+	 */
+	public static MetaData forVersions(String groupId, String artifactId, String latest, String release, Collection<String> versions, Date lastModified) {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<metadata>")
+			.append("<groupId>").append(groupId).append("</groupId>")
+			.append("<artifactId>").append(artifactId).append("</artifactId>")
+			.append("<version>").append(latest).append("</version>")
+			.append("<versioning>")
+			.append("	<latest>").append(latest).append("</latest>");
+		
+		if (release != null) {
+			xml.append("	<release>").append(release).append("</release>");
+		}
+		
+		xml.append("	<versions>");
+		
+		for (String version : versions) {
+			xml.append("<version>").append(version).append("</version>");
+		}
+		
+		xml.append("	</versions>")
+			.append("	<lastUpdated>").append(new SimpleDateFormat("yyyyMMddHHmmss").format(lastModified)).append("</lastUpdated>")
+			.append("</versioning></metadata>");
+		
+		return new MetaData(xml.toString().getBytes(Charset.forName("UTF-8")), lastModified);
+	}
+	
+	/**
+	 * The UTF-8 encoded xml, this array is shared and must not be modified
+	 */
+	public byte [] getContent() {
+		return content;
+	}
+	
+	public InputStream getStream() {
+		return new ByteArrayInputStream(content);
+	}
+
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	public String getETag() {
+		return etag;
+	}
+}
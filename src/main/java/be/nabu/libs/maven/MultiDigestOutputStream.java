@@ -0,0 +1,75 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+package be.nabu.libs.maven;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.EnumMap;
+import java.util.Map;
+
+import be.nabu.libs.maven.RepositoryUtils.HashAlgorithm;
+
+/**
+ * Calculates any number of digests over the data as it is written to the parent stream
+ */
+public class MultiDigestOutputStream extends FilterOutputStream {
+
+	private Map<HashAlgorithm, MessageDigest> digests = new EnumMap<HashAlgorithm, MessageDigest>(HashAlgorithm.class);
+	private long size;
+	
+	public MultiDigestOutputStream(OutputStream parent, Iterable<HashAlgorithm> algorithms) {
+		super(parent);
+		for (HashAlgorithm algorithm : algorithms) {
+			digests.put(algorithm, algorithm.newDigest());
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		for (MessageDigest digest : digests.values()) {
+			digest.update((byte) b);
+		}
+		size++;
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		out.write(bytes, offset, length);
+		for (MessageDigest digest : digests.values()) {
+			digest.update(bytes, offset, length);
+		}
+		size += length;
+	}
+	
+	/**
+	 * Returns the hex encoded hashes of everything that was written, this can only be called once
+	 */
+	public Map<HashAlgorithm, String> getHashes() {
+		Map<HashAlgorithm, String> hashes = new EnumMap<HashAlgorithm, String>(HashAlgorithm.class);
+		for (Map.Entry<HashAlgorithm, MessageDigest> entry : digests.entrySet()) {
+			hashes.put(entry.getKey(), RepositoryUtils.toHex(entry.getValue().digest()));
+		}
+		return hashes;
+	}
+	
+	public long getSize() {
+		return size;
+	}
+}
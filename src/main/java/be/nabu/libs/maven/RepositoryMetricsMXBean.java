@@ -0,0 +1,40 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link JmxRepositoryMetrics}, latencies are in microseconds and keyed by operation
+ */
+public interface RepositoryMetricsMXBean {
+	public long getScans();
+	public long getLastScanMillis();
+	public long getFilesVisited();
+	public long getFilesParsed();
+	public long getFilesSkipped();
+	public long getBytesServed();
+	public Map<String, Long> getOperationCounts();
+	public Map<String, Double> getMeanLatencies();
+	public Map<String, Double> getMedianLatencies();
+	public Map<String, Double> get99thPercentileLatencies();
+	public Map<String, Double> getMaxLatencies();
+	public Map<String, Double> getCacheHitRatios();
+	public void reset();
+}
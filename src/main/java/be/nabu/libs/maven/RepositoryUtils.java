@@ -18,29 +18,71 @@
 package be.nabu.libs.maven;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
 import java.util.Properties;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 public class RepositoryUtils {
 	
+	private static final XMLInputFactory XML_FACTORY = newXMLInputFactory();
+	
 	public enum HashAlgorithm {
-		MD5("MD5"), SHA1("SHA-1");
+		MD5("MD5", "md5"), SHA1("SHA-1", "sha1"), SHA256("SHA-256", "sha256"), SHA512("SHA-512", "sha512");
 		
-		private String name;
+		private String name, extension;
 		
-		private HashAlgorithm(String name) {
+		private HashAlgorithm(String name, String extension) {
 			this.name = name;
+			this.extension = extension;
 		}
 		
 		public String getName() {
 			return name;
 		}
+		
+		/**
+		 * The extension maven uses for the checksum file, e.g. "sha1" for "artifact.jar.sha1"
+		 */
+		public String getExtension() {
+			return extension;
+		}
+		
+		/**
+		 * The platform only guarantees MD5, SHA-1 and SHA-256, the others depend on the installed security providers
+		 */
+		public boolean isAvailable() {
+			try {
+				MessageDigest.getInstance(name);
+				return true;
+			}
+			catch (NoSuchAlgorithmException e) {
+				return false;
+			}
+		}
+		
+		public MessageDigest newDigest() {
+			try {
+				return MessageDigest.getInstance(name);
+			}
+			catch (NoSuchAlgorithmException e) {
+				throw new UnsupportedOperationException("The hash algorithm " + name + " is not provided by any of the installed security providers", e);
+			}
+		}
 	}
 	
 	/**
@@ -51,22 +93,19 @@ public class RepositoryUtils {
 	 * @throws IOException
 	 */
 	public static String hash(InputStream input, HashAlgorithm algorithm) throws IOException {
-		try {
-			MessageDigest digest = MessageDigest.getInstance(algorithm.getName());
-			byte [] buffer = new byte[102400];
-			int read = 0;
-			while ((read = input.read(buffer)) != -1)
-				digest.update(buffer, 0, read);
-			byte [] hash = digest.digest();
-			StringBuffer string = new StringBuffer();
-			for (int i = 0; i < hash.length; ++i)
-				string.append(Integer.toHexString((hash[i] & 0xFF) | 0x100).substring(1,3));
-			return string.toString();
-		}
-		catch (NoSuchAlgorithmException e) {
-			// should not occur due to enum
-			throw new RuntimeException(e);
-		}
+		MessageDigest digest = algorithm.newDigest();
+		byte [] buffer = new byte[102400];
+		int read = 0;
+		while ((read = input.read(buffer)) != -1)
+			digest.update(buffer, 0, read);
+		return toHex(digest.digest());
+	}
+	
+	public static String toHex(byte [] hash) {
+		StringBuilder string = new StringBuilder(hash.length * 2);
+		for (int i = 0; i < hash.length; ++i)
+			string.append(Integer.toHexString((hash[i] & 0xFF) | 0x100).substring(1,3));
+		return string.toString();
 	}
 	
 	/**
@@ -88,35 +127,281 @@ public class RepositoryUtils {
 		return null;
 	}
 	
+	/**
+	 * Retrieves the properties stored in the "pom.properties" file in the zip
+	 * This uses the central directory of the zip file so only the entry itself is read
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static Properties getPropertiesFromZip(File file) throws IOException {
+		ZipFile zip = openZip(file);
+		if (zip == null) {
+			return null;
+		}
+		try {
+			ZipEntry entry = getEntry(zip, "/pom.properties");
+			if (entry == null) {
+				return null;
+			}
+			InputStream input = zip.getInputStream(entry);
+			try {
+				Properties properties = new Properties();
+				properties.load(input);
+				return properties;
+			}
+			finally {
+				input.close();
+			}
+		}
+		finally {
+			zip.close();
+		}
+	}
+	
+	/**
+	 * Retrieves the "pom.xml" file in the zip, closing the stream closes the zip file
+	 * This uses the central directory of the zip file so only the entry itself is read
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static InputStream getPomFromZip(File file) throws IOException {
+		final ZipFile zip = openZip(file);
+		if (zip == null) {
+			return null;
+		}
+		try {
+			ZipEntry entry = getEntry(zip, "/pom.xml");
+			if (entry == null) {
+				zip.close();
+				return null;
+			}
+			return new FilterInputStream(zip.getInputStream(entry)) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					}
+					finally {
+						zip.close();
+					}
+				}
+			};
+		}
+		catch (IOException e) {
+			zip.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Files that are not zips are treated like zips without entries, this mirrors the behavior of the {@link ZipInputStream}
+	 */
+	private static ZipFile openZip(File file) throws IOException {
+		try {
+			return new ZipFile(file);
+		}
+		catch (ZipException e) {
+			return null;
+		}
+	}
+	
+	private static ZipEntry getEntry(ZipFile zip, String suffix) {
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			if (entry.getName().endsWith(suffix)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Reads the coordinates of a pom, the groupId and version are inherited from the parent if the pom does not define them itself
+	 * The pom is streamed and the reading stops as soon as all the coordinates are known, only the top level elements are considered
+	 * Coordinates that can not be found are not added to the properties
+	 * A pom that is not well-formed does not fail, it results in whatever coordinates were read before the error
+	 */
 	public static Properties getPropertiesFromXML(InputStream input) throws IOException {
 		Properties properties = new Properties();
+		String parentGroupId = null, parentVersion = null;
 		try {
-			// going for regex instead of dom document parsing due to overhead for latter
-			// this may change in future releases
-			String content = toString(input);
-			// remove any parent reference which would contain its own group id etc
-			content = content.replaceAll("(?s)<parent>.*?</parent>", "");
-			// remove any dependencies reference
-			content = content.replaceAll("(?s)<dependencies>.*?</dependencies>", "");
-			properties.put("groupId", content.replaceAll("(?s).*?<groupId>([^<]+).*", "$1"));
-			properties.put("artifactId", content.replaceAll("(?s).*?<artifactId>([^<]+).*", "$1"));
-			properties.put("version", content.replaceAll("(?s).*?<version>([^<]+).*", "$1"));
-			if (content.contains("<packaging>")) {
-				properties.put("packaging", content.replaceAll("(?s).*?<packaging>([^<]+).*", "$1"));
+			XMLStreamReader reader = XML_FACTORY.createXMLStreamReader(input);
+			try {
+				int depth = 0;
+				while (reader.hasNext() && depth >= 0) {
+					int event = reader.next();
+					if (event == XMLStreamConstants.END_ELEMENT) {
+						depth--;
+						// the end of the project
+						if (depth == 0) {
+							break;
+						}
+					}
+					else if (event == XMLStreamConstants.START_ELEMENT) {
+						depth++;
+						if (depth == 2) {
+							String name = reader.getLocalName();
+							if (name.equals("groupId") || name.equals("artifactId") || name.equals("version") || name.equals("packaging")) {
+								properties.put(name, reader.getElementText().trim());
+								depth--;
+								if (properties.size() == 4) {
+									break;
+								}
+							}
+							else if (name.equals("parent")) {
+								// the parent only has simple child elements
+								while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+									String childName = reader.getLocalName();
+									String value = reader.getElementText().trim();
+									if (childName.equals("groupId")) {
+										parentGroupId = value;
+									}
+									else if (childName.equals("version")) {
+										parentVersion = value;
+									}
+								}
+								depth--;
+							}
+							else {
+								skipElement(reader);
+								depth--;
+							}
+						}
+					}
+				}
+			}
+			finally {
+				reader.close();
 			}
 		}
+		catch (XMLStreamException e) {
+			// not a (valid) pom, we keep what we have
+		}
 		finally {
 			input.close();
 		}
+		if (!properties.containsKey("groupId") && parentGroupId != null) {
+			properties.put("groupId", parentGroupId);
+		}
+		if (!properties.containsKey("version") && parentVersion != null) {
+			properties.put("version", parentVersion);
+		}
 		return properties;
 	}
 	
+	/**
+	 * Skips the current element, including all its children
+	 */
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+	
+	private static XMLInputFactory newXMLInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		// a pom has no business declaring a dtd or external entities
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+	
 	public static String toString(InputStream input) throws IOException {
 		ByteArrayOutputStream output = new ByteArrayOutputStream();
 		copy(input, output);
 		return new String(output.toByteArray(), "UTF-8");
 	}
 
+	/**
+	 * Reads the full stream and closes it, a null stream results in null
+	 */
+	public static byte [] toBytes(InputStream input) throws IOException {
+		if (input == null) {
+			return null;
+		}
+		try {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			copy(input, output);
+			return output.toByteArray();
+		}
+		finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Skips exactly the given amount of bytes, unless the stream ends first
+	 */
+	public static void skip(InputStream input, long amount) throws IOException {
+		while (amount > 0) {
+			long skipped = input.skip(amount);
+			if (skipped <= 0) {
+				// skip() may return 0 without being at the end, read() tells us for sure
+				if (input.read() == -1) {
+					break;
+				}
+				skipped = 1;
+			}
+			amount -= skipped;
+		}
+	}
+	
+	/**
+	 * Limits the stream to the given amount of bytes, closing the limited stream closes the original
+	 */
+	public static InputStream limit(InputStream input, final long length) {
+		return new FilterInputStream(input) {
+			private long remaining = length;
+			@Override
+			public int read() throws IOException {
+				if (remaining <= 0) {
+					return -1;
+				}
+				int read = super.read();
+				if (read >= 0) {
+					remaining--;
+				}
+				return read;
+			}
+			@Override
+			public int read(byte[] bytes, int offset, int length) throws IOException {
+				if (remaining <= 0) {
+					return -1;
+				}
+				int read = super.read(bytes, offset, (int) Math.min(length, remaining));
+				if (read > 0) {
+					remaining -= read;
+				}
+				return read;
+			}
+			@Override
+			public long skip(long amount) throws IOException {
+				long skipped = super.skip(Math.min(amount, remaining));
+				remaining -= skipped;
+				return skipped;
+			}
+			@Override
+			public int available() throws IOException {
+				return (int) Math.min(super.available(), remaining);
+			}
+			@Override
+			public boolean markSupported() {
+				return false;
+			}
+		};
+	}
+	
 	public static void copy(InputStream input, OutputStream output) throws IOException {
 		int read = 0;
 		byte [] buffer = new byte[102400];
@@ -0,0 +1,47 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+package be.nabu.libs.maven.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An artifact that can deliver (parts of) its content directly to a channel, this allows for zero-copy and resumable downloads
+ */
+public interface ChannelArtifact extends Artifact {
+	/**
+	 * The size of the content in bytes or -1 if it is not known up front
+	 */
+	public long getContentLength() throws IOException;
+	
+	/**
+	 * Writes the full content to the channel and returns the amount of bytes written
+	 */
+	public long transferTo(WritableByteChannel channel) throws IOException;
+	
+	/**
+	 * Writes part of the content to the channel and returns the amount of bytes written
+	 * A length of -1 means up to the end of the content, the result can be shorter if the content ends before the requested range does
+	 */
+	public long transferTo(WritableByteChannel channel, long offset, long length) throws IOException;
+	
+	/**
+	 * Returns part of the content, a length of -1 means up to the end of the content
+	 */
+	public InputStream getContent(long offset, long length) throws IOException;
+}
@@ -24,5 +24,8 @@ import java.util.Set;
 public interface DomainRepository extends Repository {
 	public List<String> getDomains();
 	public boolean isInternal(Artifact artifact);
+	/**
+	 * The latest main artifact of every artifact in the internal domains, the set can not be modified
+	 */
 	public Set<Artifact> getInternalArtifacts() throws IOException;
 }
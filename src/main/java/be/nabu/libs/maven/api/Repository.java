@@ -19,8 +19,11 @@ package be.nabu.libs.maven.api;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.SortedSet;
 
+import be.nabu.libs.maven.RepositoryUtils;
+
 public interface Repository {
 	
 	/**
@@ -70,4 +73,22 @@ public interface Repository {
 	 * Force the repository to scan its resources
 	 */
 	public void scan() throws IOException;
-}
+	
+	/**
+	 * Resolves a batch of requests in one call, the results are in the same order as the requests
+	 * By default every request is resolved separately, implementations that can do better should override it
+	 */
+	public default ResolveResult resolve(List<ResolveRequest> requests) throws IOException {
+		ResolveResult result = new ResolveResult(requests.size());
+		for (ResolveRequest request : requests) {
+			if (request.getVersion() == null) {
+				result.add(new ResolveResult.Resolution(request, null, getVersions(request.getGroupId(), request.getArtifactId()), RepositoryUtils.toBytes(getMetaData(request.getGroupId(), request.getArtifactId()))));
+			}
+			else {
+				Artifact artifact = getArtifact(request.getGroupId(), request.getArtifactId(), request.getVersion(), request.isTest());
+				result.add(new ResolveResult.Resolution(request, artifact, null, artifact == null ? null : RepositoryUtils.toBytes(getMetaData(artifact))));
+			}
+		}
+		return result;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.api;
+
+/**
+ * Receives measurements about the operations of a repository
+ * Implementations are called on the threads that perform the operations so they should return quickly and be thread safe
+ * If no metrics are set on a repository, nothing is measured at all
+ */
+public interface RepositoryMetrics {
+	
+	public enum Operation {
+		GET_GROUPS,
+		GET_ARTIFACTS,
+		GET_VERSIONS,
+		GET_ARTIFACT,
+		GET_META_DATA,
+		GET_VERSION_META_DATA,
+		GET_INTERNAL_ARTIFACTS,
+		RESOLVE,
+		SCAN,
+		CREATE
+	}
+	
+	/**
+	 * An operation on the repository has finished
+	 */
+	public void timed(Operation operation, long nanos);
+	
+	/**
+	 * A full scan has finished, the skipped files were either unchanged or not artifacts
+	 */
+	public void scanned(long nanos, long visited, long parsed, long skipped);
+	
+	/**
+	 * Bytes of artifact content were delivered to a reader
+	 */
+	public void served(long bytes);
+	
+	/**
+	 * A lookup in one of the caches of the repository
+	 */
+	public void cached(String cache, boolean hit);
+}
@@ -0,0 +1,59 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.api;
+
+/**
+ * One request in a batch resolve, without a version it asks for the available versions and the metadata of the artifact, with a version it asks for that specific artifact and its metadata
+ */
+public class ResolveRequest {
+	
+	private String groupId, artifactId, version;
+	private boolean test;
+	
+	public ResolveRequest(String groupId, String artifactId) {
+		this(groupId, artifactId, null, false);
+	}
+	
+	public ResolveRequest(String groupId, String artifactId, String version, boolean test) {
+		this.groupId = groupId;
+		this.artifactId = artifactId;
+		this.version = version;
+		this.test = test;
+	}
+	
+	public String getGroupId() {
+		return groupId;
+	}
+	public String getArtifactId() {
+		return artifactId;
+	}
+	/**
+	 * Null if the request is about all the versions
+	 */
+	public String getVersion() {
+		return version;
+	}
+	public boolean isTest() {
+		return test;
+	}
+	
+	@Override
+	public String toString() {
+		return groupId + ":" + artifactId + (version == null ? "" : ":" + version) + (test ? ":tests" : "");
+	}
+}
@@ -0,0 +1,88 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * The answers to a batch resolve, in the same order as the requests
+ */
+public class ResolveResult {
+	
+	private List<Resolution> resolutions;
+	
+	public ResolveResult(int size) {
+		this.resolutions = new ArrayList<Resolution>(size);
+	}
+	
+	public void add(Resolution resolution) {
+		resolutions.add(resolution);
+	}
+	
+	public List<Resolution> getResolutions() {
+		return Collections.unmodifiableList(resolutions);
+	}
+	
+	public Resolution get(int index) {
+		return resolutions.get(index);
+	}
+	
+	public int size() {
+		return resolutions.size();
+	}
+	
+	/**
+	 * A request without a version gets the versions and the metadata of the artifact, the artifact itself is null
+	 * A request with a version gets the artifact and the metadata of that version, the versions are null
+	 * Anything that does not exist is null, for a request without a version nothing exists means an empty set of versions
+	 */
+	public static class Resolution {
+		private ResolveRequest request;
+		private Artifact artifact;
+		private SortedSet<String> versions;
+		private byte [] metaData;
+		
+		public Resolution(ResolveRequest request, Artifact artifact, SortedSet<String> versions, byte [] metaData) {
+			this.request = request;
+			this.artifact = artifact;
+			this.versions = versions;
+			this.metaData = metaData;
+		}
+		
+		public ResolveRequest getRequest() {
+			return request;
+		}
+		public Artifact getArtifact() {
+			return artifact;
+		}
+		public SortedSet<String> getVersions() {
+			return versions;
+		}
+		/**
+		 * A new stream on the maven-metadata.xml, the underlying content is shared with the metadata cache so it is not exposed directly
+		 */
+		public InputStream getMetaData() {
+			return metaData == null ? null : new ByteArrayInputStream(metaData);
+		}
+	}
+}
@@ -0,0 +1,259 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.async;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.api.ChannelArtifact;
+import be.nabu.libs.maven.api.Repository;
+import be.nabu.libs.maven.api.ResolveRequest;
+import be.nabu.libs.maven.api.ResolveResult;
+import be.nabu.libs.maven.api.WritableRepository;
+
+/**
+ * Runs the blocking calls of a repository on an executor and returns a future for the result so the caller does not have to dedicate a thread to each request
+ * By default the calls run on virtual threads if the runtime supports them (java 21+), on older runtimes they run on a bounded pool of daemon threads
+ * The futures fail with the exception that the repository threw
+ */
+public class AsyncRepository implements Closeable {
+
+	private Repository repository;
+	private ExecutorService executor;
+	
+	/**
+	 * Whether we created the executor and should shut it down when we are closed
+	 */
+	private boolean ownsExecutor;
+	
+	public AsyncRepository(Repository repository) {
+		this(repository, newDefaultExecutor(Runtime.getRuntime().availableProcessors() * 8));
+		this.ownsExecutor = true;
+	}
+	
+	public AsyncRepository(Repository repository, ExecutorService executor) {
+		this.repository = repository;
+		this.executor = executor;
+	}
+	
+	/**
+	 * Returns an executor that starts a virtual thread per task if the runtime supports it, otherwise a pool of at most the given amount of daemon threads
+	 * The virtual thread executor is looked up reflectively so this still runs on older runtimes
+	 */
+	public static ExecutorService newDefaultExecutor(int poolSize) {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		}
+		catch (Exception e) {
+			// not supported by this runtime
+		}
+		final AtomicInteger counter = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "maven-repository-async-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	public CompletableFuture<SortedSet<String>> getVersions(final String groupId, final String artifactId) {
+		return submit(new Callable<SortedSet<String>>() {
+			@Override
+			public SortedSet<String> call() throws IOException {
+				return repository.getVersions(groupId, artifactId);
+			}
+		});
+	}
+	
+	/**
+	 * Completes with null if the artifact does not exist
+	 */
+	public CompletableFuture<Artifact> getArtifact(final String groupId, final String artifactId, final String version, final boolean isTest) {
+		return submit(new Callable<Artifact>() {
+			@Override
+			public Artifact call() throws IOException {
+				return repository.getArtifact(groupId, artifactId, version, isTest);
+			}
+		});
+	}
+	
+	public CompletableFuture<InputStream> getMetaData(final String groupId, final String artifactId) {
+		return submit(new Callable<InputStream>() {
+			@Override
+			public InputStream call() throws IOException {
+				return repository.getMetaData(groupId, artifactId);
+			}
+		});
+	}
+	
+	public CompletableFuture<InputStream> getMetaData(final Artifact artifact) {
+		return submit(new Callable<InputStream>() {
+			@Override
+			public InputStream call() throws IOException {
+				return repository.getMetaData(artifact);
+			}
+		});
+	}
+	
+	public CompletableFuture<ResolveResult> resolve(final List<ResolveRequest> requests) {
+		return submit(new Callable<ResolveResult>() {
+			@Override
+			public ResolveResult call() throws IOException {
+				return repository.resolve(requests);
+			}
+		});
+	}
+	
+	/**
+	 * The input is read on the executor, it should not be read or closed by the caller until the future completes
+	 * If the repository is not writable, the future fails with an {@link UnsupportedOperationException}
+	 */
+	public CompletableFuture<Artifact> create(final String groupId, final String artifactId, final String version, final String packaging, final InputStream input, final boolean isTest) {
+		if (!(repository instanceof WritableRepository)) {
+			CompletableFuture<Artifact> future = new CompletableFuture<Artifact>();
+			future.completeExceptionally(new UnsupportedOperationException("The repository is not writable: " + repository));
+			return future;
+		}
+		return submit(new Callable<Artifact>() {
+			@Override
+			public Artifact call() throws IOException {
+				return ((WritableRepository) repository).create(groupId, artifactId, version, packaging, input, isTest);
+			}
+		});
+	}
+	
+	/**
+	 * Opens the content, reading from the stream can still block
+	 * Use {@link #transferTo(Artifact, WritableByteChannel)} to have the full content delivered on the executor
+	 */
+	public CompletableFuture<InputStream> getContent(final Artifact artifact) {
+		return submit(new Callable<InputStream>() {
+			@Override
+			public InputStream call() throws IOException {
+				return artifact.getContent();
+			}
+		});
+	}
+	
+	public CompletableFuture<InputStream> getPom(final Artifact artifact) {
+		return submit(new Callable<InputStream>() {
+			@Override
+			public InputStream call() throws IOException {
+				return artifact.getPom();
+			}
+		});
+	}
+	
+	/**
+	 * Writes the full content of the artifact to the channel on the executor and completes with the amount of bytes written
+	 * Artifacts that can write to a channel themselves do so, this allows for zero-copy transfers
+	 */
+	public CompletableFuture<Long> transferTo(final Artifact artifact, final WritableByteChannel channel) {
+		return submit(new Callable<Long>() {
+			@Override
+			public Long call() throws IOException {
+				if (artifact instanceof ChannelArtifact) {
+					return ((ChannelArtifact) artifact).transferTo(channel);
+				}
+				long written = 0;
+				ReadableByteChannel input = Channels.newChannel(artifact.getContent());
+				try {
+					ByteBuffer buffer = ByteBuffer.allocate(8192);
+					while (input.read(buffer) >= 0) {
+						buffer.flip();
+						while (buffer.hasRemaining()) {
+							written += channel.write(buffer);
+						}
+						buffer.clear();
+					}
+				}
+				finally {
+					input.close();
+				}
+				return written;
+			}
+		});
+	}
+	
+	private <T> CompletableFuture<T> submit(final Callable<T> callable) {
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					// the caller may have given up already
+					if (future.isDone()) {
+						return;
+					}
+					try {
+						future.complete(callable.call());
+					}
+					catch (Throwable e) {
+						future.completeExceptionally(e);
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+	
+	public Repository getRepository() {
+		return repository;
+	}
+	
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+	
+	/**
+	 * Shuts down the executor if it was created by us, calls that are already running are allowed to finish
+	 */
+	@Override
+	public void close() {
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+	}
+}
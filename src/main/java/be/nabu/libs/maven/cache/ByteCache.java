@@ -0,0 +1,179 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of byte arrays that is bounded by the total amount of bytes it holds rather than the amount of entries
+ * Eviction is segmented LRU: new entries start out in a probation segment and are only promoted to the protected segment when they are hit again
+ * This way a burst of one-off reads (like a full download of the repository) can only push out other entries that were never reused
+ * Every entry has a version (for instance a modification time), an entry that is requested with a different version is dropped
+ * Off heap the bytes are stored in direct buffers so a large cache does not add to the work of the garbage collector
+ */
+public class ByteCache {
+
+	/**
+	 * The part of the budget that can be taken by the protected segment
+	 */
+	private static final double PROTECTED_RATIO = 0.8;
+	
+	private long maximumSize, maximumProtectedSize;
+	private boolean offHeap;
+	
+	/**
+	 * Both maps are kept in access order, the eldest entry is the least recently used one
+	 */
+	private LinkedHashMap<String, Entry> probation = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private LinkedHashMap<String, Entry> protectedEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long size, protectedSize;
+	
+	public ByteCache(long maximumSize, boolean offHeap) {
+		this.maximumSize = maximumSize;
+		this.maximumProtectedSize = (long) (maximumSize * PROTECTED_RATIO);
+		this.offHeap = offHeap;
+	}
+	
+	/**
+	 * Returns a read-only buffer with the cached bytes or null if there is no entry for this version
+	 */
+	public synchronized ByteBuffer get(String key, long version) {
+		Entry entry = protectedEntries.get(key);
+		if (entry == null) {
+			entry = probation.remove(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.version != version) {
+				size -= entry.getSize();
+				return null;
+			}
+			// a second hit promotes the entry, which may push the least recently used protected entries back to probation
+			protectedEntries.put(key, entry);
+			protectedSize += entry.getSize();
+			Iterator<Map.Entry<String, Entry>> iterator = protectedEntries.entrySet().iterator();
+			while (protectedSize > maximumProtectedSize && iterator.hasNext()) {
+				Map.Entry<String, Entry> eldest = iterator.next();
+				if (eldest.getValue() != entry) {
+					iterator.remove();
+					protectedSize -= eldest.getValue().getSize();
+					probation.put(eldest.getKey(), eldest.getValue());
+				}
+			}
+		}
+		else if (entry.version != version) {
+			protectedEntries.remove(key);
+			protectedSize -= entry.getSize();
+			size -= entry.getSize();
+			return null;
+		}
+		return entry.content.duplicate();
+	}
+	
+	/**
+	 * Stores the first length bytes of the array, entries that are larger than the whole cache are ignored
+	 */
+	public void put(String key, long version, byte [] bytes, int length) {
+		if (length > maximumSize) {
+			return;
+		}
+		// the copy is made outside of the lock
+		ByteBuffer content = offHeap ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+		content.put(bytes, 0, length);
+		content.flip();
+		Entry entry = new Entry(content.asReadOnlyBuffer(), version);
+		synchronized(this) {
+			remove(key);
+			probation.put(key, entry);
+			size += length;
+			evict();
+		}
+	}
+	
+	public synchronized void remove(String key) {
+		Entry entry = probation.remove(key);
+		if (entry == null) {
+			entry = protectedEntries.remove(key);
+			if (entry != null) {
+				protectedSize -= entry.getSize();
+			}
+		}
+		if (entry != null) {
+			size -= entry.getSize();
+		}
+	}
+	
+	public synchronized void clear() {
+		probation.clear();
+		protectedEntries.clear();
+		size = 0;
+		protectedSize = 0;
+	}
+	
+	/**
+	 * Evicts from probation first, the protected entries are only evicted if probation is empty
+	 */
+	private void evict() {
+		Iterator<Entry> iterator = probation.values().iterator();
+		while (size > maximumSize && iterator.hasNext()) {
+			size -= iterator.next().getSize();
+			iterator.remove();
+		}
+		iterator = protectedEntries.values().iterator();
+		while (size > maximumSize && iterator.hasNext()) {
+			Entry entry = iterator.next();
+			size -= entry.getSize();
+			protectedSize -= entry.getSize();
+			iterator.remove();
+		}
+	}
+	
+	public synchronized long getSize() {
+		return size;
+	}
+	
+	public synchronized int getCount() {
+		return probation.size() + protectedEntries.size();
+	}
+	
+	public long getMaximumSize() {
+		return maximumSize;
+	}
+	
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+	
+	private static class Entry {
+		private ByteBuffer content;
+		private long version;
+		
+		private Entry(ByteBuffer content, long version) {
+			this.content = content;
+			this.version = version;
+		}
+		
+		private int getSize() {
+			return content.capacity();
+		}
+	}
+}
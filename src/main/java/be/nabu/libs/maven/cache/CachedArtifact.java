@@ -0,0 +1,205 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Date;
+
+import be.nabu.libs.maven.RepositoryUtils;
+import be.nabu.libs.maven.RepositoryUtils.HashAlgorithm;
+import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.api.ChannelArtifact;
+import be.nabu.libs.maven.api.HashedArtifact;
+
+/**
+ * Wraps an artifact of the cached repository, the pom and small contents are served from the cache as long as the last modified of the artifact does not change
+ */
+public class CachedArtifact implements HashedArtifact, ChannelArtifact {
+
+	private CachingRepository repository;
+	private Artifact artifact;
+	
+	CachedArtifact(CachingRepository repository, Artifact artifact) {
+		this.repository = repository;
+		this.artifact = artifact;
+	}
+	
+	@Override
+	public InputStream getPom() throws IOException {
+		long version = getCacheVersion();
+		ByteBuffer cached = repository.getCached(getKey(CachingRepository.POM), version);
+		if (cached != null) {
+			return new ByteBufferInputStream(cached);
+		}
+		InputStream pom = artifact.getPom();
+		return pom == null ? null : repository.cache(getKey(CachingRepository.POM), version, pom);
+	}
+	
+	@Override
+	public InputStream getContent() throws IOException {
+		if (!isCacheable()) {
+			return artifact.getContent();
+		}
+		long version = getCacheVersion();
+		ByteBuffer cached = repository.getCached(getKey(CachingRepository.CONTENT), version);
+		return cached == null ? repository.cache(getKey(CachingRepository.CONTENT), version, artifact.getContent()) : new ByteBufferInputStream(cached);
+	}
+	
+	@Override
+	public InputStream getContent(long offset, long length) throws IOException {
+		ByteBuffer cached = getCachedContent();
+		if (cached != null) {
+			return new ByteBufferInputStream(slice(cached, offset, length));
+		}
+		else if (artifact instanceof ChannelArtifact) {
+			return ((ChannelArtifact) artifact).getContent(offset, length);
+		}
+		InputStream input = artifact.getContent();
+		RepositoryUtils.skip(input, offset);
+		return length < 0 ? input : RepositoryUtils.limit(input, length);
+	}
+	
+	@Override
+	public long getContentLength() throws IOException {
+		if (artifact instanceof ChannelArtifact) {
+			return ((ChannelArtifact) artifact).getContentLength();
+		}
+		ByteBuffer cached = getCachedContent();
+		return cached == null ? -1 : cached.remaining();
+	}
+	
+	@Override
+	public long transferTo(WritableByteChannel channel) throws IOException {
+		return transferTo(channel, 0, -1);
+	}
+	
+	@Override
+	public long transferTo(WritableByteChannel channel, long offset, long length) throws IOException {
+		ByteBuffer cached = getCachedContent();
+		if (cached != null) {
+			ByteBuffer slice = slice(cached, offset, length);
+			long written = slice.remaining();
+			while (slice.hasRemaining()) {
+				channel.write(slice);
+			}
+			return written;
+		}
+		else if (artifact instanceof ChannelArtifact) {
+			return ((ChannelArtifact) artifact).transferTo(channel, offset, length);
+		}
+		InputStream input = getContent(offset, length);
+		try {
+			OutputStream output = Channels.newOutputStream(channel);
+			byte [] buffer = new byte[8192];
+			long written = 0;
+			int read;
+			while ((read = input.read(buffer)) > 0) {
+				output.write(buffer, 0, read);
+				written += read;
+			}
+			return written;
+		}
+		finally {
+			input.close();
+		}
+	}
+	
+	@Override
+	public String getHash(HashAlgorithm algorithm) throws IOException {
+		if (artifact instanceof HashedArtifact) {
+			return ((HashedArtifact) artifact).getHash(algorithm);
+		}
+		InputStream content = getContent();
+		try {
+			return RepositoryUtils.hash(content, algorithm);
+		}
+		finally {
+			content.close();
+		}
+	}
+	
+	/**
+	 * Only content that is known to fit in an entry is looked up, for other artifacts the size is checked when the content is read
+	 */
+	private ByteBuffer getCachedContent() throws IOException {
+		return isCacheable() ? repository.getCached(getKey(CachingRepository.CONTENT), getCacheVersion()) : null;
+	}
+	
+	private boolean isCacheable() throws IOException {
+		if (artifact instanceof ChannelArtifact) {
+			long length = ((ChannelArtifact) artifact).getContentLength();
+			return length >= 0 && length <= repository.getMaximumEntrySize();
+		}
+		return true;
+	}
+	
+	private static ByteBuffer slice(ByteBuffer buffer, long offset, long length) {
+		int start = (int) Math.min(offset, buffer.remaining());
+		int end = length < 0 ? buffer.remaining() : (int) Math.min(start + length, buffer.remaining());
+		buffer.position(buffer.position() + start);
+		buffer.limit(buffer.position() + end - start);
+		return buffer;
+	}
+	
+	private long getCacheVersion() {
+		Date lastModified = artifact.getLastModified();
+		return lastModified == null ? -1 : lastModified.getTime();
+	}
+	
+	private String getKey(String type) {
+		return repository.getKey(getGroupId(), getArtifactId(), getVersion(), isTest(), type);
+	}
+	
+	/**
+	 * The artifact that is being cached
+	 */
+	public Artifact getArtifact() {
+		return artifact;
+	}
+	
+	@Override
+	public String getPackaging() {
+		return artifact.getPackaging();
+	}
+	@Override
+	public String getGroupId() {
+		return artifact.getGroupId();
+	}
+	@Override
+	public String getVersion() {
+		return artifact.getVersion();
+	}
+	@Override
+	public String getArtifactId() {
+		return artifact.getArtifactId();
+	}
+	@Override
+	public Date getLastModified() {
+		return artifact.getLastModified();
+	}
+	@Override
+	public boolean isTest() {
+		return artifact.isTest();
+	}
+}
@@ -0,0 +1,226 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.api.DomainRepository;
+import be.nabu.libs.maven.api.Repository;
+import be.nabu.libs.maven.api.RepositoryMetrics;
+import be.nabu.libs.maven.api.WritableRepository;
+
+/**
+ * Wraps a repository and keeps the poms and the content of small artifacts in a {@link ByteCache}
+ * Extracting a pom means opening and inflating the archive so this pays off for artifacts that are requested often, like parent poms and boms
+ * An entry is only valid for the last modified of the artifact it was read from, so a file that is replaced in a file repository is read again
+ * The lookups themselves are passed on to the wrapped repository
+ */
+public class CachingRepository implements WritableRepository, DomainRepository {
+
+	static final String POM = "pom";
+	static final String CONTENT = "content";
+	
+	private static AtomicInteger instances = new AtomicInteger();
+	
+	private Repository repository;
+	
+	/**
+	 * A cache can be shared by several repositories, their keys are prefixed with an id that is unique for each instance
+	 */
+	private String id = Integer.toString(instances.incrementAndGet());
+
+	private ByteCache cache;
+	
+	/**
+	 * Content that is larger than this is never cached
+	 */
+	private long maximumEntrySize = 1024 * 1024;
+	
+	private RepositoryMetrics metrics;
+	
+	public CachingRepository(Repository repository, long maximumSize) {
+		this(repository, new ByteCache(maximumSize, false));
+	}
+	
+	public CachingRepository(Repository repository, ByteCache cache) {
+		this.repository = repository;
+		this.cache = cache;
+	}
+	
+	@Override
+	public SortedSet<String> getGroups() throws IOException {
+		return repository.getGroups();
+	}
+
+	@Override
+	public SortedSet<String> getArtifacts(String groupId) throws IOException {
+		return repository.getArtifacts(groupId);
+	}
+
+	@Override
+	public SortedSet<String> getVersions(String groupId, String artifactId) throws IOException {
+		return repository.getVersions(groupId, artifactId);
+	}
+
+	@Override
+	public Artifact getArtifact(String groupId, String artifactId, String version, boolean isTest) throws IOException {
+		return wrap(repository.getArtifact(groupId, artifactId, version, isTest));
+	}
+
+	@Override
+	public InputStream getMetaData(String groupId, String artifactId) throws IOException {
+		return repository.getMetaData(groupId, artifactId);
+	}
+
+	@Override
+	public InputStream getMetaData(Artifact artifact) throws IOException {
+		return repository.getMetaData(unwrap(artifact));
+	}
+
+	@Override
+	public void scan() throws IOException {
+		repository.scan();
+	}
+	
+	@Override
+	public Artifact create(String groupId, String artifactId, String version, String packaging, InputStream input, boolean isTest) throws IOException {
+		if (!(repository instanceof WritableRepository)) {
+			throw new UnsupportedOperationException("The cached repository is not writable");
+		}
+		Artifact artifact = ((WritableRepository) repository).create(groupId, artifactId, version, packaging, input, isTest);
+		// the last modified of the new file can be the same as that of the old one on file systems with a coarse resolution
+		cache.remove(getKey(groupId, artifactId, version, isTest, POM));
+		cache.remove(getKey(groupId, artifactId, version, isTest, CONTENT));
+		return wrap(artifact);
+	}
+
+	@Override
+	public List<String> getDomains() {
+		return repository instanceof DomainRepository ? ((DomainRepository) repository).getDomains() : Collections.<String>emptyList();
+	}
+
+	@Override
+	public boolean isInternal(Artifact artifact) {
+		return repository instanceof DomainRepository && ((DomainRepository) repository).isInternal(unwrap(artifact));
+	}
+
+	@Override
+	public Set<Artifact> getInternalArtifacts() throws IOException {
+		if (!(repository instanceof DomainRepository)) {
+			return Collections.emptySet();
+		}
+		final Set<Artifact> artifacts = ((DomainRepository) repository).getInternalArtifacts();
+		// the artifacts are wrapped as they are iterated
+		return new AbstractSet<Artifact>() {
+			@Override
+			public Iterator<Artifact> iterator() {
+				final Iterator<Artifact> iterator = artifacts.iterator();
+				return new Iterator<Artifact>() {
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+					@Override
+					public Artifact next() {
+						return wrap(iterator.next());
+					}
+				};
+			}
+			@Override
+			public int size() {
+				return artifacts.size();
+			}
+		};
+	}
+	
+	ByteBuffer getCached(String key, long version) {
+		ByteBuffer cached = cache.get(key, version);
+		RepositoryMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.cached("artifactCache", cached != null);
+		}
+		return cached;
+	}
+	
+	/**
+	 * Reads the stream into the cache if it fits in an entry, otherwise the part that was already read is replayed in front of the rest of the stream
+	 */
+	InputStream cache(String key, long version, InputStream input) throws IOException {
+		byte [] bytes = new byte[(int) Math.min(maximumEntrySize + 1, 8192)];
+		int length = 0;
+		int read;
+		while (length <= maximumEntrySize && (read = input.read(bytes, length, bytes.length - length)) >= 0) {
+			length += read;
+			if (length == bytes.length && length <= maximumEntrySize) {
+				byte [] larger = new byte[(int) Math.min(maximumEntrySize + 1, bytes.length * 2L)];
+				System.arraycopy(bytes, 0, larger, 0, length);
+				bytes = larger;
+			}
+		}
+		if (length > maximumEntrySize) {
+			return new SequenceInputStream(new ByteArrayInputStream(bytes, 0, length), input);
+		}
+		input.close();
+		cache.put(key, version, bytes, length);
+		return new ByteArrayInputStream(bytes, 0, length);
+	}
+	
+	String getKey(String groupId, String artifactId, String version, boolean isTest, String type) {
+		return id + "/" + groupId + ":" + artifactId + ":" + version + (isTest ? ":tests" : "") + "#" + type;
+	}
+	
+	private Artifact wrap(Artifact artifact) {
+		return artifact == null ? null : new CachedArtifact(this, artifact);
+	}
+	
+	private static Artifact unwrap(Artifact artifact) {
+		return artifact instanceof CachedArtifact ? ((CachedArtifact) artifact).getArtifact() : artifact;
+	}
+	
+	public Repository getRepository() {
+		return repository;
+	}
+	public ByteCache getCache() {
+		return cache;
+	}
+	public long getMaximumEntrySize() {
+		return maximumEntrySize;
+	}
+	public void setMaximumEntrySize(long maximumEntrySize) {
+		this.maximumEntrySize = Math.min(maximumEntrySize, Integer.MAX_VALUE - 1);
+	}
+	public RepositoryMetrics getMetrics() {
+		return metrics;
+	}
+	public void setMetrics(RepositoryMetrics metrics) {
+		this.metrics = metrics;
+	}
+}
@@ -0,0 +1,529 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.composite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import be.nabu.libs.maven.MavenVersion;
+import be.nabu.libs.maven.MetaData;
+import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.api.DomainRepository;
+import be.nabu.libs.maven.api.Repository;
+
+/**
+ * Combines a number of repositories into one, the members are listed in order of priority
+ * An artifact is looked up in all the members at the same time and the hit from the member with the highest priority wins
+ * The listings are merged, a merged listing is reused for as long as the members keep returning the same sets, which repositories based on {@link be.nabu.libs.maven.BaseRepository} do until their index changes
+ * Only the most recently used merged listings are kept, a merged listing holds on to the member listings it was merged from
+ */
+public class CompositeRepository implements DomainRepository {
+
+	private static final SortedSet<String> EMPTY = Collections.unmodifiableSortedSet(new TreeSet<String>());
+	
+	private List<Repository> members;
+	
+	/**
+	 * Runs the lookups in the members with a lower priority and the scans
+	 * Unless another executor is set, this is a pool of at most maximumThreads threads that stop when they are idle, further lookups wait in its queue
+	 */
+	private ExecutorService executor;
+	private int maximumThreads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+	
+	/**
+	 * The merged listings, keyed by groupId and groupId:artifactId, at most maximumMerged of each are kept
+	 */
+	private int maximumMerged = 1000;
+	private volatile Merged groups;
+	private Map<String, Merged> artifacts = newCache();
+	private Map<String, Merged> versions = newCache();
+	private Map<String, MergedMetaData> metaData = newCache();
+	private volatile MergedInternal internal;
+	
+	public CompositeRepository(Repository...members) {
+		this(Arrays.asList(members));
+	}
+	
+	public CompositeRepository(List<? extends Repository> members) {
+		this.members = Collections.unmodifiableList(new ArrayList<Repository>(members));
+	}
+	
+	@Override
+	public SortedSet<String> getGroups() throws IOException {
+		List<SortedSet<String>> sources = new ArrayList<SortedSet<String>>(members.size());
+		for (Repository member : members) {
+			sources.add(member.getGroups());
+		}
+		Merged merged = groups;
+		if (merged == null || !merged.isFor(sources)) {
+			groups = merged = new Merged(sources, false);
+		}
+		return merged.result;
+	}
+
+	@Override
+	public SortedSet<String> getArtifacts(String groupId) throws IOException {
+		List<SortedSet<String>> sources = new ArrayList<SortedSet<String>>(members.size());
+		for (Repository member : members) {
+			sources.add(member.getArtifacts(groupId));
+		}
+		return getMerged(artifacts, groupId, sources, false);
+	}
+
+	@Override
+	public SortedSet<String> getVersions(String groupId, String artifactId) throws IOException {
+		List<SortedSet<String>> sources = new ArrayList<SortedSet<String>>(members.size());
+		for (Repository member : members) {
+			sources.add(member.getVersions(groupId, artifactId));
+		}
+		return getMerged(versions, groupId + ":" + artifactId, sources, true);
+	}
+	
+	private static SortedSet<String> getMerged(Map<String, Merged> cache, String key, List<SortedSet<String>> sources, boolean isVersions) {
+		Merged merged = cache.get(key);
+		if (merged == null || !merged.isFor(sources)) {
+			merged = new Merged(sources, isVersions);
+			if (merged.result.isEmpty()) {
+				cache.remove(key);
+			}
+			else {
+				cache.put(key, merged);
+			}
+		}
+		return merged.result;
+	}
+
+	@Override
+	public Artifact getArtifact(final String groupId, final String artifactId, final String version, final boolean isTest) throws IOException {
+		if (members.isEmpty()) {
+			return null;
+		}
+		// the member with the highest priority is queried in the calling thread, the others in parallel
+		List<Future<Artifact>> futures = new ArrayList<Future<Artifact>>(members.size() - 1);
+		for (final Repository member : members.subList(1, members.size())) {
+			futures.add(getExecutor().submit(new Callable<Artifact>() {
+				@Override
+				public Artifact call() throws IOException {
+					return member.getArtifact(groupId, artifactId, version, isTest);
+				}
+			}));
+		}
+		IOException failure = null;
+		try {
+			Artifact artifact = null;
+			try {
+				artifact = members.get(0).getArtifact(groupId, artifactId, version, isTest);
+			}
+			catch (IOException e) {
+				failure = e;
+			}
+			for (Future<Artifact> future : futures) {
+				if (artifact != null) {
+					return artifact;
+				}
+				try {
+					artifact = future.get();
+				}
+				catch (ExecutionException e) {
+					if (failure == null) {
+						failure = toIOException(e);
+					}
+				}
+			}
+			if (artifact != null) {
+				return artifact;
+			}
+		}
+		catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while looking up " + groupId + ":" + artifactId + ":" + version);
+		}
+		finally {
+			// lookups that are already running are not interrupted, a member may be sharing them with other callers
+			for (Future<Artifact> future : futures) {
+				future.cancel(false);
+			}
+		}
+		// a member that failed may have had the artifact
+		if (failure != null) {
+			throw failure;
+		}
+		return null;
+	}
+
+	/**
+	 * If only one member knows the artifact, its metadata is used as is, otherwise it is generated from the merged versions
+	 */
+	@Override
+	public InputStream getMetaData(String groupId, String artifactId) throws IOException {
+		Repository owner = null;
+		for (Repository member : members) {
+			if (!member.getVersions(groupId, artifactId).isEmpty()) {
+				if (owner != null) {
+					MetaData merged = getMergedMetaData(groupId, artifactId);
+					return merged == null ? null : merged.getStream();
+				}
+				owner = member;
+			}
+		}
+		return owner == null ? null : owner.getMetaData(groupId, artifactId);
+	}
+	
+	private MetaData getMergedMetaData(String groupId, String artifactId) throws IOException {
+		String key = groupId + ":" + artifactId;
+		SortedSet<String> versions = getVersions(groupId, artifactId);
+		MergedMetaData cached = metaData.get(key);
+		if (cached != null && cached.versions == versions) {
+			return cached.metaData;
+		}
+		String latest = versions.last();
+		Artifact latestArtifact = getArtifact(groupId, artifactId, latest, false);
+		if (latestArtifact == null) {
+			latestArtifact = getArtifact(groupId, artifactId, latest, true);
+		}
+		if (latestArtifact == null) {
+			return null;
+		}
+		String release = null;
+		Iterator<String> iterator = versions instanceof NavigableSet ? ((NavigableSet<String>) versions).descendingIterator() : versions.iterator();
+		while (iterator.hasNext()) {
+			String version = iterator.next();
+			if (!version.endsWith("-SNAPSHOT")) {
+				release = version;
+				// in descending order the first one is the one we want
+				if (versions instanceof NavigableSet) {
+					break;
+				}
+			}
+		}
+		MetaData generated = MetaData.forVersions(groupId, artifactId, latest, release, versions, latestArtifact.getLastModified());
+		metaData.put(key, new MergedMetaData(versions, generated));
+		return generated;
+	}
+
+	/**
+	 * The metadata is requested from the member that the artifact came from
+	 */
+	@Override
+	public InputStream getMetaData(Artifact artifact) throws IOException {
+		Repository fallback = null;
+		Artifact fallbackArtifact = null;
+		for (Repository member : members) {
+			Artifact own = member.getArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), artifact.isTest());
+			if (own == artifact) {
+				return member.getMetaData(artifact);
+			}
+			else if (own != null && fallback == null) {
+				fallback = member;
+				fallbackArtifact = own;
+			}
+		}
+		return fallback == null ? null : fallback.getMetaData(fallbackArtifact);
+	}
+
+	/**
+	 * Scans all the members at the same time
+	 */
+	@Override
+	public void scan() throws IOException {
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(members.size());
+		for (final Repository member : members) {
+			futures.add(getExecutor().submit(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					member.scan();
+					return null;
+				}
+			}));
+		}
+		IOException failure = null;
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			}
+			catch (InterruptedException e) {
+				throw new InterruptedIOException("Interrupted while scanning");
+			}
+			catch (ExecutionException e) {
+				if (failure == null) {
+					failure = toIOException(e);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * The domains of all the members
+	 */
+	@Override
+	public List<String> getDomains() {
+		Set<String> domains = new LinkedHashSet<String>();
+		for (Repository member : members) {
+			if (member instanceof DomainRepository) {
+				domains.addAll(((DomainRepository) member).getDomains());
+			}
+		}
+		return Collections.unmodifiableList(new ArrayList<String>(domains));
+	}
+
+	@Override
+	public boolean isInternal(Artifact artifact) {
+		for (Repository member : members) {
+			if (member instanceof DomainRepository && ((DomainRepository) member).isInternal(artifact)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * If multiple members have an internal artifact with the same coordinates, the highest version wins, for equal versions the member with the highest priority
+	 */
+	@Override
+	public Set<Artifact> getInternalArtifacts() throws IOException {
+		List<Set<Artifact>> sources = new ArrayList<Set<Artifact>>(members.size());
+		for (Repository member : members) {
+			if (member instanceof DomainRepository) {
+				sources.add(((DomainRepository) member).getInternalArtifacts());
+			}
+		}
+		MergedInternal merged = internal;
+		if (merged == null || !isSame(merged.sources, sources)) {
+			internal = merged = new MergedInternal(sources);
+		}
+		return merged.result;
+	}
+	
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(maximumThreads, maximumThreads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "maven-repository-composite");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+		return executor;
+	}
+	
+	private <V> Map<String, V> newCache() {
+		return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+				return size() > maximumMerged;
+			}
+		});
+	}
+	
+	public synchronized void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+	
+	public int getMaximumThreads() {
+		return maximumThreads;
+	}
+	
+	/**
+	 * Only applies to the default executor if it has not been created yet
+	 */
+	public synchronized void setMaximumThreads(int maximumThreads) {
+		this.maximumThreads = maximumThreads;
+	}
+	
+	public int getMaximumMerged() {
+		return maximumMerged;
+	}
+	
+	public void setMaximumMerged(int maximumMerged) {
+		this.maximumMerged = maximumMerged;
+	}
+	
+	public List<Repository> getMembers() {
+		return members;
+	}
+	
+	private static IOException toIOException(ExecutionException e) {
+		if (e.getCause() instanceof IOException) {
+			return (IOException) e.getCause();
+		}
+		else if (e.getCause() instanceof RuntimeException) {
+			throw (RuntimeException) e.getCause();
+		}
+		else if (e.getCause() instanceof Error) {
+			throw (Error) e.getCause();
+		}
+		return new IOException(e.getCause());
+	}
+	
+	private static boolean isSame(List<?> first, List<?> second) {
+		if (first.size() != second.size()) {
+			return false;
+		}
+		for (int i = 0; i < first.size(); i++) {
+			if (first.get(i) != second.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * A merged listing and the member listings it was merged from
+	 */
+	private static class Merged {
+		private List<SortedSet<String>> sources;
+		private SortedSet<String> result;
+		
+		private Merged(List<SortedSet<String>> sources, boolean isVersions) {
+			this.sources = sources;
+			SortedSet<String> largest = null;
+			int filled = 0;
+			for (SortedSet<String> source : sources) {
+				if (!source.isEmpty()) {
+					filled++;
+					if (largest == null || source.size() > largest.size()) {
+						largest = source;
+					}
+				}
+			}
+			if (largest == null) {
+				result = EMPTY;
+			}
+			else if (filled == 1) {
+				result = Collections.unmodifiableSortedSet(largest);
+			}
+			// the comparator of a member only knows the versions of that member, every version is parsed once for all the comparisons
+			else if (isVersions) {
+				TreeSet<String> merged = new TreeSet<String>(new VersionOrder(sources));
+				for (SortedSet<String> source : sources) {
+					merged.addAll(source);
+				}
+				result = Collections.unmodifiableSortedSet(merged);
+			}
+			else {
+				// copying a sorted set is linear, only the smaller sets are inserted one by one
+				TreeSet<String> merged = new TreeSet<String>(largest);
+				for (SortedSet<String> source : sources) {
+					if (source != largest) {
+						merged.addAll(source);
+					}
+				}
+				result = Collections.unmodifiableSortedSet(merged);
+			}
+		}
+		
+		private boolean isFor(List<SortedSet<String>> sources) {
+			return isSame(this.sources, sources);
+		}
+	}
+	
+	/**
+	 * Sorts versions according to the maven rules using the parsed versions of the sources
+	 */
+	private static class VersionOrder implements Comparator<String> {
+		private Map<String, MavenVersion> keys = new HashMap<String, MavenVersion>();
+		
+		private VersionOrder(List<SortedSet<String>> sources) {
+			for (SortedSet<String> source : sources) {
+				for (String version : source) {
+					if (!keys.containsKey(version)) {
+						keys.put(version, MavenVersion.parse(version));
+					}
+				}
+			}
+		}
+		
+		private MavenVersion getKey(String version) {
+			MavenVersion key = keys.get(version);
+			return key == null ? MavenVersion.parse(version) : key;
+		}
+		
+		@Override
+		public int compare(String first, String second) {
+			int result = getKey(first).compareTo(getKey(second));
+			// versions like 1.0 and 1.0.0 are equal for maven but they are different artifacts
+			return result == 0 ? first.compareTo(second) : result;
+		}
+	}
+	
+	private static class MergedMetaData {
+		private SortedSet<String> versions;
+		private MetaData metaData;
+		
+		private MergedMetaData(SortedSet<String> versions, MetaData metaData) {
+			this.versions = versions;
+			this.metaData = metaData;
+		}
+	}
+	
+	private static class MergedInternal {
+		private List<Set<Artifact>> sources;
+		private Set<Artifact> result;
+		
+		private MergedInternal(List<Set<Artifact>> sources) {
+			this.sources = sources;
+			Map<String, Artifact> latest = new HashMap<String, Artifact>();
+			// the parsed version of the current winner, so it is not parsed again for every contender
+			Map<String, MavenVersion> latestVersions = new HashMap<String, MavenVersion>();
+			for (Set<Artifact> source : sources) {
+				for (Artifact artifact : source) {
+					String key = artifact.getGroupId() + ":" + artifact.getArtifactId();
+					MavenVersion version = MavenVersion.parse(artifact.getVersion());
+					MavenVersion existing = latestVersions.get(key);
+					if (existing == null || version.compareTo(existing) > 0) {
+						latest.put(key, artifact);
+						latestVersions.put(key, version);
+					}
+				}
+			}
+			result = Collections.unmodifiableSet(new HashSet<Artifact>(latest.values()));
+		}
+	}
+}
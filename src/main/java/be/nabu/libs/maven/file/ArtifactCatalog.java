@@ -0,0 +1,336 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.file;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import be.nabu.libs.maven.BaseRepository;
+
+/**
+ * A compact store for very large repositories
+ * The coordinates and directories are stored once in a symbol table and the fields of each artifact are stored in primitive arrays (one per field) indexed by an int id
+ * The repository only holds a small {@link CatalogArtifact} per artifact, a full {@link FileArtifact} is only created when the content, pom or hashes are requested
+ * The id of a replaced or removed artifact is reused by the next artifact that is stored, the view of the old artifact is retired first: it keeps its own copy of the row so it remains valid for anyone still holding it
+ * All the changes are synchronized, the lookups and the views read the columns without locking
+ */
+class ArtifactCatalog implements ArtifactStore {
+
+	private static final byte TEST = 1;
+	
+	private BaseRepository repository;
+	private String rootPath;
+	private SymbolTable symbols = new SymbolTable();
+	private volatile Columns columns = new Columns(1024);
+	private int next, alive;
+	
+	/**
+	 * The ids that can be reused
+	 */
+	private int [] free = new int[64];
+	private int freeCount;
+	
+	/**
+	 * An open addressing table from (directory, name) to id + 1, 0 means empty and -1 is a removed entry
+	 * The entries are written after the row they point to is published so a lookup never sees a partial row
+	 */
+	private volatile AtomicIntegerArray slots = new AtomicIntegerArray(2048);
+	private int usedSlots;
+	
+	ArtifactCatalog(BaseRepository repository, File root) {
+		this.repository = repository;
+		this.rootPath = root.getPath() + File.separator;
+	}
+	
+	/**
+	 * The rows are only written while they are not in use, when the columns grow they are copied and published as a whole
+	 * A row is in use as long as it has a view
+	 */
+	private static class Columns {
+		private int [] groupIds, artifactIds, versions, packagings, directories;
+		private String [] names;
+		private long [] sizes, modified;
+		private byte [] flags;
+		private CatalogArtifact [] views;
+		
+		private Columns(int capacity) {
+			groupIds = new int[capacity];
+			artifactIds = new int[capacity];
+			versions = new int[capacity];
+			packagings = new int[capacity];
+			directories = new int[capacity];
+			names = new String[capacity];
+			sizes = new long[capacity];
+			modified = new long[capacity];
+			flags = new byte[capacity];
+			views = new CatalogArtifact[capacity];
+		}
+		
+		private Columns(Columns columns, int capacity) {
+			groupIds = Arrays.copyOf(columns.groupIds, capacity);
+			artifactIds = Arrays.copyOf(columns.artifactIds, capacity);
+			versions = Arrays.copyOf(columns.versions, capacity);
+			packagings = Arrays.copyOf(columns.packagings, capacity);
+			directories = Arrays.copyOf(columns.directories, capacity);
+			names = Arrays.copyOf(columns.names, capacity);
+			sizes = Arrays.copyOf(columns.sizes, capacity);
+			modified = Arrays.copyOf(columns.modified, capacity);
+			flags = Arrays.copyOf(columns.flags, capacity);
+			views = Arrays.copyOf(columns.views, capacity);
+		}
+	}
+	
+	/**
+	 * This does not lock so the parallel scanner can check all its files at the same time
+	 */
+	@Override
+	public IndexedArtifact get(File file) {
+		String path = file.getPath();
+		if (!path.startsWith(rootPath)) {
+			return null;
+		}
+		int separator = path.lastIndexOf(File.separatorChar);
+		int directory = symbols.find(separator < rootPath.length() ? "" : path.substring(rootPath.length(), separator));
+		if (directory < 0) {
+			return null;
+		}
+		String name = path.substring(separator + 1);
+		// if the artifact is replaced while we look for it, we look again
+		for (int attempt = 0; attempt < 3; attempt++) {
+			AtomicIntegerArray slots = this.slots;
+			int slot = findSlot(slots, directory, name);
+			if (slot == -1) {
+				return null;
+			}
+			int id = slot < 0 ? -1 : slots.get(slot) - 1;
+			if (id >= 0) {
+				Columns columns = this.columns;
+				CatalogArtifact view = columns.views[id];
+				// the id may have been reused for another file since we found it
+				if (view != null && columns.directories[id] == directory && name.equals(columns.names[id])) {
+					return view;
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized IndexedArtifact put(FileArtifact artifact) {
+		String path = artifact.getFile().getPath();
+		if (!path.startsWith(rootPath)) {
+			throw new IllegalArgumentException("The file is not in the repository: " + path);
+		}
+		int separator = path.lastIndexOf(File.separatorChar);
+		int directory = symbols.intern(separator < rootPath.length() ? "" : path.substring(rootPath.length(), separator));
+		String name = path.substring(separator + 1);
+		
+		Columns columns = this.columns;
+		int id;
+		if (freeCount > 0) {
+			id = free[--freeCount];
+		}
+		else {
+			if (next == columns.flags.length) {
+				columns = new Columns(columns, columns.flags.length * 2);
+			}
+			id = next++;
+		}
+		columns.groupIds[id] = symbols.intern(artifact.getGroupId());
+		columns.artifactIds[id] = symbols.intern(artifact.getArtifactId());
+		columns.versions[id] = symbols.intern(artifact.getVersion());
+		columns.packagings[id] = symbols.intern(artifact.getPackaging());
+		columns.directories[id] = directory;
+		columns.names[id] = name;
+		columns.sizes[id] = artifact.getIndexedSize();
+		columns.modified[id] = artifact.getIndexedModified();
+		columns.flags[id] = artifact.isTest() ? TEST : 0;
+		CatalogArtifact view = new CatalogArtifact(this, id);
+		columns.views[id] = view;
+		// publishes the row
+		this.columns = columns;
+		
+		int slot = findSlot(slots, directory, name);
+		if (slot >= 0) {
+			// the previous artifact for this file is retired
+			int previous = slots.get(slot) - 1;
+			slots.set(slot, id + 1);
+			retire(previous);
+		}
+		else {
+			insert(id);
+			alive++;
+		}
+		return view;
+	}
+
+	@Override
+	public synchronized boolean remove(IndexedArtifact artifact) {
+		if (!(artifact instanceof CatalogArtifact) || ((CatalogArtifact) artifact).getCatalog() != this) {
+			return false;
+		}
+		int id = ((CatalogArtifact) artifact).getId();
+		Columns columns = this.columns;
+		// a retired view no longer owns its id
+		if (columns.views[id] != artifact) {
+			return false;
+		}
+		int slot = findSlot(slots, columns.directories[id], columns.names[id]);
+		if (slot < 0 || slots.get(slot) != id + 1) {
+			return false;
+		}
+		slots.set(slot, -1);
+		retire(id);
+		alive--;
+		return true;
+	}
+	
+	/**
+	 * The view is detached from the row before the id is made available again
+	 */
+	private void retire(int id) {
+		Columns columns = this.columns;
+		columns.views[id].retire();
+		columns.views[id] = null;
+		columns.names[id] = null;
+		if (freeCount == free.length) {
+			free = Arrays.copyOf(free, free.length * 2);
+		}
+		free[freeCount++] = id;
+	}
+
+	@Override
+	public synchronized Collection<IndexedArtifact> values() {
+		Columns columns = this.columns;
+		List<IndexedArtifact> values = new ArrayList<IndexedArtifact>(alive);
+		for (int id = 0; id < next; id++) {
+			if (columns.views[id] != null) {
+				values.add(columns.views[id]);
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * Returns -1 if there is no slot for the file, lookups that do not lock get -2 if they ran into a row that was released while they were looking
+	 */
+	private int findSlot(AtomicIntegerArray slots, int directory, String name) {
+		int mask = slots.length() - 1;
+		boolean released = false;
+		for (int slot = hash(directory, name) & mask; ; slot = (slot + 1) & mask) {
+			int value = slots.get(slot);
+			if (value == 0) {
+				return released ? -2 : -1;
+			}
+			else if (value > 0) {
+				// the columns are read after the slot so they contain the row it points to
+				Columns columns = this.columns;
+				String candidate = columns.names[value - 1];
+				if (candidate == null) {
+					released = true;
+				}
+				else if (columns.directories[value - 1] == directory && name.equals(candidate)) {
+					return slot;
+				}
+			}
+		}
+	}
+	
+	private void insert(int id) {
+		// keep at least half of the slots empty, removed entries are dropped when the table is rebuilt
+		if ((usedSlots + 1) * 2 > slots.length()) {
+			AtomicIntegerArray previous = slots;
+			AtomicIntegerArray rebuilt = new AtomicIntegerArray(alive * 4 > previous.length() ? previous.length() * 2 : previous.length());
+			usedSlots = 0;
+			for (int i = 0; i < previous.length(); i++) {
+				int value = previous.get(i);
+				if (value > 0) {
+					place(rebuilt, value - 1);
+				}
+			}
+			slots = rebuilt;
+		}
+		place(slots, id);
+	}
+	
+	private void place(AtomicIntegerArray slots, int id) {
+		Columns columns = this.columns;
+		int mask = slots.length() - 1;
+		int slot = hash(columns.directories[id], columns.names[id]) & mask;
+		while (slots.get(slot) != 0) {
+			slot = (slot + 1) & mask;
+		}
+		slots.set(slot, id + 1);
+		usedSlots++;
+	}
+	
+	private static int hash(int directory, String name) {
+		int hash = directory * 31 + name.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+	
+	String getGroupId(int id) {
+		return symbols.get(columns.groupIds[id]);
+	}
+	
+	String getArtifactId(int id) {
+		return symbols.get(columns.artifactIds[id]);
+	}
+	
+	String getVersion(int id) {
+		return symbols.get(columns.versions[id]);
+	}
+	
+	String getPackaging(int id) {
+		return symbols.get(columns.packagings[id]);
+	}
+	
+	boolean isTest(int id) {
+		return (columns.flags[id] & TEST) != 0;
+	}
+	
+	long getSize(int id) {
+		return columns.sizes[id];
+	}
+	
+	long getModified(int id) {
+		return columns.modified[id];
+	}
+	
+	File getFile(int id) {
+		Columns columns = this.columns;
+		String directory = symbols.get(columns.directories[id]);
+		return new File(directory.isEmpty() ? rootPath + columns.names[id] : rootPath + directory + File.separator + columns.names[id]);
+	}
+	
+	BaseRepository getRepository() {
+		return repository;
+	}
+	
+	/**
+	 * The amount of distinct strings in the catalog
+	 */
+	int getSymbols() {
+		return symbols.size();
+	}
+}
@@ -0,0 +1,54 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.file;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the parsed artifacts as they are
+ */
+class ArtifactMap implements ArtifactStore {
+
+	private Map<File, IndexedArtifact> artifacts = new ConcurrentHashMap<File, IndexedArtifact>();
+	
+	@Override
+	public IndexedArtifact get(File file) {
+		return artifacts.get(file);
+	}
+
+	@Override
+	public IndexedArtifact put(FileArtifact artifact) {
+		artifacts.put(artifact.getFile(), artifact);
+		return artifact;
+	}
+
+	@Override
+	public boolean remove(IndexedArtifact artifact) {
+		return artifacts.remove(artifact.getFile(), artifact);
+	}
+
+	@Override
+	public Collection<IndexedArtifact> values() {
+		return Collections.unmodifiableCollection(artifacts.values());
+	}
+}
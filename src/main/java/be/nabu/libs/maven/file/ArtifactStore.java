@@ -0,0 +1,41 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.file;
+
+import java.io.File;
+import java.util.Collection;
+
+/**
+ * Keeps track of the artifact per file in a file repository, only the writers of the repository use this, readers go through the index
+ */
+interface ArtifactStore {
+	/**
+	 * The current artifact for the file or null if there is none
+	 */
+	public IndexedArtifact get(File file);
+	/**
+	 * Stores a parsed artifact, replacing the current one for the same file, and returns the artifact that represents it in the repository
+	 */
+	public IndexedArtifact put(FileArtifact artifact);
+	/**
+	 * Removes the artifact, but only if it is still the current one for its file
+	 */
+	public boolean remove(IndexedArtifact artifact);
+	public Collection<IndexedArtifact> values();
+}
@@ -0,0 +1,228 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Date;
+
+import be.nabu.libs.maven.RepositoryUtils.HashAlgorithm;
+import be.nabu.libs.maven.api.RepositoryMetrics;
+
+/**
+ * A view on a row in an {@link ArtifactCatalog}, the coordinates are read from the catalog and everything that involves the file itself is delegated to a {@link FileArtifact} that is created for the occasion
+ * Only the hashes are kept once they are known, so a view that has been used stays about as small as one that has not
+ * When the row is released the view is retired: from then on it only uses a file artifact that holds its own copy of the row
+ */
+class CatalogArtifact implements IndexedArtifact {
+
+	private ArtifactCatalog catalog;
+	private int id;
+	private volatile FileArtifact fileArtifact;
+	private volatile boolean retired;
+	private String [] hashes;
+	
+	CatalogArtifact(ArtifactCatalog catalog, int id) {
+		this.catalog = catalog;
+		this.id = id;
+	}
+	
+	/**
+	 * Creating the file artifact is cheap because nothing is parsed
+	 */
+	FileArtifact toFileArtifact() {
+		if (!retired) {
+			FileArtifact fileArtifact = new FileArtifact(catalog.getFile(id), catalog.getSize(id), catalog.getModified(id), catalog.getGroupId(id), catalog.getArtifactId(id), catalog.getVersion(id), catalog.getPackaging(id), catalog.getRepository());
+			// if we were retired while reading, the row may already belong to another artifact
+			if (!retired) {
+				return fileArtifact;
+			}
+		}
+		return fileArtifact;
+	}
+	
+	/**
+	 * Called by the catalog before it reuses the row
+	 */
+	void retire() {
+		fileArtifact = toFileArtifact();
+		retired = true;
+	}
+	
+	@Override
+	public InputStream getPom() throws IOException {
+		return toFileArtifact().getPom();
+	}
+
+	@Override
+	public String getPackaging() {
+		if (!retired) {
+			String packaging = catalog.getPackaging(id);
+			// if we were retired while reading, the row may already belong to another artifact
+			if (!retired) {
+				return packaging;
+			}
+		}
+		return fileArtifact.getPackaging();
+	}
+
+	@Override
+	public String getGroupId() {
+		if (!retired) {
+			String groupId = catalog.getGroupId(id);
+			if (!retired) {
+				return groupId;
+			}
+		}
+		return fileArtifact.getGroupId();
+	}
+
+	@Override
+	public String getVersion() {
+		if (!retired) {
+			String version = catalog.getVersion(id);
+			if (!retired) {
+				return version;
+			}
+		}
+		return fileArtifact.getVersion();
+	}
+
+	@Override
+	public String getArtifactId() {
+		if (!retired) {
+			String artifactId = catalog.getArtifactId(id);
+			if (!retired) {
+				return artifactId;
+			}
+		}
+		return fileArtifact.getArtifactId();
+	}
+
+	@Override
+	public Date getLastModified() {
+		return new Date(getIndexedModified());
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		return toFileArtifact().getContent();
+	}
+
+	@Override
+	public boolean isTest() {
+		if (!retired) {
+			boolean test = catalog.isTest(id);
+			if (!retired) {
+				return test;
+			}
+		}
+		return fileArtifact.isTest();
+	}
+
+	@Override
+	public String getHash(HashAlgorithm algorithm) throws IOException {
+		String hash = getCachedHash(algorithm);
+		if (hash == null) {
+			hash = toFileArtifact().getHash(algorithm);
+			setHash(algorithm, hash);
+		}
+		else {
+			RepositoryMetrics metrics = catalog.getRepository().getMetrics();
+			if (metrics != null) {
+				metrics.cached("hash", true);
+			}
+		}
+		return hash;
+	}
+	
+	private synchronized String getCachedHash(HashAlgorithm algorithm) {
+		return hashes == null ? null : hashes[algorithm.ordinal()];
+	}
+	
+	synchronized void setHash(HashAlgorithm algorithm, String hash) {
+		if (hashes == null) {
+			hashes = new String[HashAlgorithm.values().length];
+		}
+		hashes[algorithm.ordinal()] = hash;
+	}
+
+	@Override
+	public long getContentLength() throws IOException {
+		return getFile().length();
+	}
+
+	@Override
+	public long transferTo(WritableByteChannel channel) throws IOException {
+		return toFileArtifact().transferTo(channel);
+	}
+
+	@Override
+	public long transferTo(WritableByteChannel channel, long offset, long length) throws IOException {
+		return toFileArtifact().transferTo(channel, offset, length);
+	}
+
+	@Override
+	public InputStream getContent(long offset, long length) throws IOException {
+		return toFileArtifact().getContent(offset, length);
+	}
+
+	@Override
+	public File getFile() {
+		if (!retired) {
+			File file = catalog.getFile(id);
+			if (!retired) {
+				return file;
+			}
+		}
+		return fileArtifact.getFile();
+	}
+
+	@Override
+	public long getIndexedSize() {
+		if (!retired) {
+			long size = catalog.getSize(id);
+			if (!retired) {
+				return size;
+			}
+		}
+		return fileArtifact.getIndexedSize();
+	}
+
+	@Override
+	public long getIndexedModified() {
+		if (!retired) {
+			long modified = catalog.getModified(id);
+			if (!retired) {
+				return modified;
+			}
+		}
+		return fileArtifact.getIndexedModified();
+	}
+	
+	ArtifactCatalog getCatalog() {
+		return catalog;
+	}
+	
+	int getId() {
+		return id;
+	}
+}
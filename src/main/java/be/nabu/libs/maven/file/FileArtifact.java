@@ -20,31 +20,277 @@ package be.nabu.libs.maven.file;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Date;
+import java.util.Properties;
 
 import be.nabu.libs.maven.BaseArtifact;
+import be.nabu.libs.maven.BaseRepository;
+import be.nabu.libs.maven.FileNameTemplate;
+import be.nabu.libs.maven.RepositoryUtils;
+import be.nabu.libs.maven.RepositoryUtils.HashAlgorithm;
+import be.nabu.libs.maven.api.RepositoryMetrics;
 
-public class FileArtifact extends BaseArtifact {
+public class FileArtifact extends BaseArtifact implements IndexedArtifact {
 	
 	private File file;
 	
+	/**
+	 * The size and modification time of the file at the time it was parsed
+	 * For a deduplicated file the modification time is that of the blob it shares with other artifacts, so the time it was published is used if that is later
+	 */
+	private long indexedSize, indexedModified;
+	
 	public FileArtifact(File file) throws IOException {
+		this(file, file.length(), file.lastModified());
+	}
+	
+	FileArtifact(File file, BasicFileAttributes attributes) throws IOException {
+		this(file, attributes.size(), attributes.lastModifiedTime().toMillis());
+	}
+	
+	/**
+	 * Restores an artifact from a persisted snapshot without opening the file
+	 */
+	FileArtifact(File file, IndexSnapshot.Entry entry) {
+		this(file, entry.size, entry.lastModified, entry.groupId, entry.artifactId, entry.version, entry.packaging, null);
+	}
+	
+	/**
+	 * Creates an artifact for which all the information is already known, the file is not opened
+	 */
+	FileArtifact(File file, long size, long modified, String groupId, String artifactId, String version, String packaging, BaseRepository repository) {
+		this.file = file;
+		this.indexedSize = size;
+		this.indexedModified = modified;
+		setGroupId(groupId);
+		setArtifactId(artifactId);
+		setVersion(version);
+		setPackaging(packaging);
+		setRepository(repository);
+	}
+	
+	/**
+	 * Uses the coordinates that were derived from the path of the file without opening it
+	 */
+	FileArtifact(File file, long size, long modified, FileNameTemplate.Coordinates coordinates) {
+		this.file = file;
+		this.indexedSize = size;
+		this.indexedModified = modified;
+		setGroupId(coordinates.getGroupId());
+		setArtifactId(coordinates.getArtifactId());
+		setVersion(coordinates.getVersion());
+	}
+	
+	FileArtifact(File file, long size, long modified) throws IOException {
 		this.file = file;
+		this.indexedSize = size;
+		this.indexedModified = modified;
 		parseProperties();
 	}
 	
+	/**
+	 * The modification time at the time the artifact was indexed, a change to the file is picked up when it is indexed again
+	 */
 	public Date getLastModified() {
-		return new Date(file.lastModified());
+		return new Date(indexedModified);
 	}
 
 	@Override
 	public FileInputStream getContent() throws FileNotFoundException {
+		RepositoryMetrics metrics = getMetrics();
+		return metrics == null ? new FileInputStream(file) : new MeteredFileInputStream(file, metrics);
+	}
+
+	@Override
+	protected InputStream getInternalContent() throws IOException {
 		return new FileInputStream(file);
 	}
 
+	@Override
+	protected InputStream getPomFromArchive() throws IOException {
+		return RepositoryUtils.getPomFromZip(file);
+	}
+
+	@Override
+	protected Properties getPropertiesFromArchive() throws IOException {
+		return RepositoryUtils.getPropertiesFromZip(file);
+	}
+
+	@Override
+	public long getContentLength() {
+		return file.length();
+	}
+
+	/**
+	 * Uses {@link FileChannel#transferTo(long, long, WritableByteChannel)} which allows the operating system to copy the data without passing it through user space
+	 */
+	@Override
+	public long transferTo(WritableByteChannel channel, long offset, long length) throws IOException {
+		FileChannel input = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long end = length < 0 ? input.size() : Math.min(input.size(), offset + length);
+			long position = offset;
+			while (position < end) {
+				long transferred = input.transferTo(position, end - position, channel);
+				if (transferred <= 0) {
+					break;
+				}
+				position += transferred;
+			}
+			RepositoryMetrics metrics = getMetrics();
+			if (metrics != null && position > offset) {
+				metrics.served(position - offset);
+			}
+			return Math.max(0, position - offset);
+		}
+		finally {
+			input.close();
+		}
+	}
+
+	@Override
+	public InputStream getContent(long offset, long length) throws IOException {
+		FileChannel input = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			input.position(offset);
+		}
+		catch (IOException e) {
+			input.close();
+			throw e;
+		}
+		InputStream stream = Channels.newInputStream(input);
+		return meter(length < 0 ? stream : RepositoryUtils.limit(stream, length));
+	}
+
+	/**
+	 * Uses the checksum file next to the artifact if it is at least as recent as the artifact itself
+	 */
+	@Override
+	protected String calculateHash(HashAlgorithm algorithm) throws IOException {
+		File checksum = getChecksumFile(algorithm);
+		if (checksum.isFile() && checksum.lastModified() >= file.lastModified()) {
+			FileInputStream input = new FileInputStream(checksum);
+			String content;
+			try {
+				// some tools append the file name after the hash
+				content = RepositoryUtils.toString(input).trim();
+			}
+			finally {
+				input.close();
+			}
+			int index = content.indexOf(' ');
+			if (index > 0) {
+				content = content.substring(0, index);
+			}
+			if (!content.isEmpty()) {
+				return content.toLowerCase();
+			}
+		}
+		return super.calculateHash(algorithm);
+	}
+	
+	/**
+	 * Writes the checksum file next to the artifact and caches the hash
+	 */
+	void writeChecksum(HashAlgorithm algorithm, String hash) throws IOException {
+		File temporary = File.createTempFile(FileRepository.TEMPORARY_PREFIX, ".tmp", file.getParentFile());
+		try {
+			FileOutputStream output = new FileOutputStream(temporary);
+			try {
+				output.write(hash.getBytes("ASCII"));
+			}
+			finally {
+				output.close();
+			}
+			FileRepository.publish(temporary, getChecksumFile(algorithm));
+		}
+		finally {
+			if (temporary.exists()) {
+				temporary.delete();
+			}
+		}
+		setHash(algorithm, hash);
+	}
+	
+	File getChecksumFile(HashAlgorithm algorithm) {
+		return new File(file.getPath() + "." + algorithm.getExtension());
+	}
+
 	@Override
 	protected String getArtifactName() {
 		return file.getName();
 	}
+	
+	@Override
+	public File getFile() {
+		return file;
+	}
+
+	@Override
+	public long getIndexedSize() {
+		return indexedSize;
+	}
+
+	@Override
+	public long getIndexedModified() {
+		return indexedModified;
+	}
+	
+	/**
+	 * The content has to remain a {@link FileInputStream} so the bytes are counted in a subclass
+	 */
+	private static class MeteredFileInputStream extends FileInputStream {
+		private RepositoryMetrics metrics;
+		private long read;
+		private boolean closed;
+		
+		private MeteredFileInputStream(File file, RepositoryMetrics metrics) throws FileNotFoundException {
+			super(file);
+			this.metrics = metrics;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			int result = super.read();
+			if (result >= 0) {
+				read++;
+			}
+			return result;
+		}
+		
+		@Override
+		public int read(byte[] bytes) throws IOException {
+			return read(bytes, 0, bytes.length);
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			int result = super.read(bytes, offset, length);
+			if (result > 0) {
+				read += result;
+			}
+			return result;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			}
+			finally {
+				if (!closed) {
+					closed = true;
+					metrics.served(read);
+				}
+			}
+		}
+	}
 }
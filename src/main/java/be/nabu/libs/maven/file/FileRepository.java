@@ -17,18 +17,44 @@
 
 package be.nabu.libs.maven.file;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
 
+import be.nabu.libs.maven.ArtifactIndex;
 import be.nabu.libs.maven.BaseRepository;
+import be.nabu.libs.maven.FileNameTemplate;
+import be.nabu.libs.maven.MultiDigestOutputStream;
 import be.nabu.libs.maven.RepositoryUtils;
+import be.nabu.libs.maven.RepositoryUtils.HashAlgorithm;
 import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.api.RepositoryMetrics;
+import be.nabu.libs.maven.api.RepositoryMetrics.Operation;
 import be.nabu.libs.maven.api.WritableRepository;
 
 /**
@@ -37,12 +63,41 @@ import be.nabu.libs.maven.api.WritableRepository;
  * @author alex
  *
  */
-public class FileRepository extends BaseRepository implements WritableRepository {
+public class FileRepository extends BaseRepository implements WritableRepository, Closeable {
 
+	/**
+	 * The name of the file in the root that holds the persisted index
+	 */
+	public static final String INDEX_FILE = ".repository.index";
+	
+	/**
+	 * The prefix of the temporary files that uploads are written to before they are moved in place
+	 */
+	public static final String TEMPORARY_PREFIX = ".upload-";
+	
+	/**
+	 * The directory in the root that holds the deduplicated content
+	 */
+	public static final String BLOB_DIRECTORY = ".blobs";
+	
 	private File root;
 
-	private Map<File, Long> lastModified = new HashMap<File, Long>();
-	private Map<File, FileArtifact> artifacts = new HashMap<File, FileArtifact>();
+	/**
+	 * The artifacts per file, this is only used by writers, readers go through the index
+	 * Writers apply their changes while holding the lock on the repository so the store and the index stay in sync
+	 */
+	private ArtifactStore artifacts = new ArtifactMap();
+	
+	/**
+	 * In compact mode the artifacts are kept in a catalog that stores every distinct string once and the rest in primitive arrays
+	 * This makes very large repositories a lot cheaper to keep in memory, a file artifact is only created for the artifacts whose content is read
+	 */
+	private boolean compact;
+	
+	/**
+	 * Only one full scan can run at a time, but it does not block uploads or lookups
+	 */
+	private Object scanLock = new Object();
 
 	/**
 	 * This regex is let loose upon the resulting file name after the format is applied. This allows you to further tweak the file name
@@ -50,6 +105,50 @@ public class FileRepository extends BaseRepository implements WritableRepository
 	 * This may be deprecated in a next version
 	 */
 	private String fileNameRegex = null;
+	private Pattern fileNamePattern = null;
+	
+	/**
+	 * If the file name format contains all the coordinates, they are taken from the path of the file instead of opening it, whether it is found by a scan, a refresh or an upload
+	 * Files that do not match the format are still opened
+	 */
+	private boolean coordinatesFromPath;
+	
+	/**
+	 * If set, the scan lists directories and parses artifacts in parallel using this pool
+	 */
+	private ForkJoinPool scanPool;
+	
+	/**
+	 * In live mode the repository watches the file system after the first scan and applies changes as they happen
+	 */
+	private boolean live;
+	private FileWatcher watcher;
+	
+	/**
+	 * If the index is persistent, the parsed artifacts are written to a file in the root after each full scan
+	 * On the first scan this file is used to restore the artifacts that have not changed in the meantime without opening them
+	 */
+	private boolean persistent;
+	private Map<File, IndexSnapshot.Entry> snapshot;
+	private volatile boolean dirty;
+	
+	/**
+	 * The checksums that are calculated while an artifact is created and stored in checksum files next to it
+	 */
+	private List<HashAlgorithm> checksums = new ArrayList<HashAlgorithm>(Arrays.asList(HashAlgorithm.MD5, HashAlgorithm.SHA1));
+	
+	private Map<File, UploadLock> uploadLocks = new HashMap<File, UploadLock>();
+	
+	/**
+	 * If deduplication is enabled, every distinct content is stored once in the blob directory under its SHA-256 and the artifacts are hardlinks to it
+	 * The link count of a blob tells us how many artifacts still use it, a blob that is only linked from the blob directory can be removed
+	 * Uploads hold the read lock while they link to a blob, the cleanup holds the write lock so it never removes a blob that is about to be linked
+	 * Links share the timestamp of their blob so it says nothing about when an artifact was published, instead the index keeps the time of the upload
+	 * The checksum files are written for every upload, after a restart the most recent of them tells us when the artifact was published, which is why the SHA-256 one is always written
+	 */
+	private boolean deduplicate;
+	private ReadWriteLock blobLock = new ReentrantReadWriteLock();
+	private volatile boolean orphanedBlobs;
 	
 	public FileRepository(File root) {
 		this.root = root;
@@ -57,37 +156,354 @@ public class FileRepository extends BaseRepository implements WritableRepository
 	
 	@Override
 	public void scan() throws IOException {
-		scan(root);
+		long started = start();
+		synchronized(scanLock) {
+			// in live mode the watcher keeps us up to date, unless it has missed changes
+			if (watcher != null && watcher.isCurrent()) {
+				timed(Operation.SCAN, started);
+				return;
+			}
+			if (watcher != null) {
+				watcher.clearStale();
+			}
+			// at this point there is either no watcher or one that has missed changes
+			if (live) {
+				if (watcher != null) {
+					watcher.close();
+				}
+				// start watching before the scan so we don't miss any changes that happen during the scan
+				watcher = new FileWatcher(this, root);
+				watcher.start();
+			}
+			scanAll();
+		}
+		timed(Operation.SCAN, started);
+	}
+	
+	/**
+	 * Walks the full tree, this picks up new and modified files and drops the files that no longer exist
+	 */
+	void scanAll() throws IOException {
+		synchronized(scanLock) {
+			// the snapshot is only relevant for the first scan, afterwards we know more than it does
+			if (persistent && snapshot == null) {
+				snapshot = IndexSnapshot.load(root, new File(root, INDEX_FILE));
+			}
+			// files that are uploaded while we are scanning may not be visited, we should not drop those
+			List<IndexedArtifact> known = new ArrayList<IndexedArtifact>(artifacts.values());
+			Set<File> visited = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+			long started = getMetrics() == null ? 0 : System.nanoTime();
+			List<FileArtifact> parsed = newScanner(root).scan(visited);
+			List<IndexedArtifact> removed = new ArrayList<IndexedArtifact>();
+			for (IndexedArtifact artifact : known) {
+				if (!visited.contains(artifact.getFile())) {
+					removed.add(artifact);
+				}
+			}
+			apply(parsed, removed);
+			if (deduplicate && (orphanedBlobs || !removed.isEmpty())) {
+				cleanBlobs();
+			}
+			RepositoryMetrics metrics = getMetrics();
+			if (metrics != null && started != 0) {
+				metrics.scanned(System.nanoTime() - started, visited.size(), parsed.size(), visited.size() - parsed.size());
+			}
+			if (snapshot != null) {
+				snapshot = Collections.emptyMap();
+			}
+			if (persistent && dirty) {
+				saveIndex();
+			}
+		}
+	}
+	
+	private void saveIndex() throws IOException {
+		dirty = false;
+		// uploads can change the artifacts while we are saving, so we save a copy
+		IndexSnapshot.save(root, new File(root, INDEX_FILE), new ArrayList<IndexedArtifact>(artifacts.values()));
+	}
+	
+	/**
+	 * Scans a part of the tree for new and modified files
+	 */
+	void scan(File directory) throws IOException {
+		apply(newScanner(directory).scan(null), Collections.<IndexedArtifact>emptyList());
+	}
+	
+	/**
+	 * Checks a single file for changes
+	 */
+	void refresh(File file) throws IOException {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		}
+		catch (NoSuchFileException e) {
+			remove(file);
+			return;
+		}
+		if (!attributes.isRegularFile()) {
+			remove(file);
+		}
+		else if (isModified(file, attributes)) {
+			apply(Arrays.asList(parse(file, attributes.size(), getModified(file, attributes))), Collections.<IndexedArtifact>emptyList());
+		}
+	}
+	
+	/**
+	 * Removes the artifact for a file, files that are not artifacts (like uploads in progress and checksums) are ignored
+	 */
+	void remove(File file) {
+		if (isIgnored(file)) {
+			return;
+		}
+		IndexedArtifact artifact = artifacts.get(file);
+		if (artifact != null) {
+			remove(Arrays.asList(artifact));
+		}
+	}
+	
+	/**
+	 * Removes all the artifacts in a directory, this has to check every artifact so it should only be called for directories
+	 */
+	void removeDirectory(File directory) {
+		List<IndexedArtifact> removed = new ArrayList<IndexedArtifact>();
+		String prefix = directory.getPath() + File.separator;
+		for (IndexedArtifact child : artifacts.values()) {
+			if (child.getFile().getPath().startsWith(prefix)) {
+				removed.add(child);
+			}
+		}
+		remove(removed);
+	}
+	
+	private void remove(List<IndexedArtifact> removed) {
+		if (!removed.isEmpty()) {
+			apply(Collections.<FileArtifact>emptyList(), removed);
+			if (deduplicate) {
+				orphanedBlobs = true;
+			}
+		}
+	}
+	
+	private FileScanner newScanner(File directory) {
+		return new FileScanner(directory, scanPool, new FileScanner.Handler() {
+			@Override
+			public boolean isModified(File file, BasicFileAttributes attributes) {
+				return FileRepository.this.isModified(file, attributes);
+			}
+			@Override
+			public boolean isSkipped(File directory) {
+				return FileRepository.this.isSkipped(directory);
+			}
+			@Override
+			public FileArtifact parse(File file, BasicFileAttributes attributes) throws IOException {
+				Map<File, IndexSnapshot.Entry> snapshot = FileRepository.this.snapshot;
+				IndexSnapshot.Entry entry = snapshot == null ? null : snapshot.get(file);
+				long modified = attributes.lastModifiedTime().toMillis();
+				// the indexed time of a deduplicated file can be later than the timestamp it shares with its blob
+				boolean restorable = entry != null && entry.size == attributes.size() && (deduplicate ? modified <= entry.lastModified : modified == entry.lastModified);
+				if (snapshot != null && !snapshot.isEmpty()) {
+					cached("indexSnapshot", restorable);
+				}
+				if (restorable) {
+					return new FileArtifact(file, entry);
+				}
+				return FileRepository.this.parse(file, attributes.size(), getModified(file, attributes));
+			}
+		});
+	}
+	
+	/**
+	 * Parses a file into an artifact, taking the coordinates from its path if that is enabled
+	 */
+	private FileArtifact parse(File file, long size, long modified) throws IOException {
+		if (coordinatesFromPath && fileNamePattern == null) {
+			FileNameTemplate.Coordinates coordinates = getFileNameTemplate().parse(getRelativePath(file));
+			if (coordinates != null) {
+				return new FileArtifact(file, size, modified, coordinates);
+			}
+		}
+		return new FileArtifact(file, size, modified);
+	}
+	
+	private String getRelativePath(File file) {
+		String path = file.getPath();
+		String rootPath = root.getPath() + File.separator;
+		if (path.startsWith(rootPath)) {
+			path = path.substring(rootPath.length());
+		}
+		return path.replace(File.separatorChar, '/');
+	}
+	
+	/**
+	 * The time to index a file with, for a deduplicated file this is the most recent of its own timestamp and that of its checksum files
+	 */
+	private long getModified(File file, BasicFileAttributes attributes) {
+		long modified = attributes.lastModifiedTime().toMillis();
+		if (deduplicate) {
+			for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+				modified = Math.max(modified, new File(file.getPath() + "." + algorithm.getExtension()).lastModified());
+			}
+		}
+		return modified;
+	}
+	
+	private boolean isModified(File file, BasicFileAttributes attributes) {
+		if (isIgnored(file)) {
+			return false;
+		}
+		IndexedArtifact previous = artifacts.get(file);
+		return previous == null || attributes.lastModifiedTime().toMillis() > previous.getIndexedModified();
+	}
+	
+	/**
+	 * Directories that are maintained by the repository itself
+	 */
+	boolean isSkipped(File directory) {
+		return directory.getName().equals(BLOB_DIRECTORY) && root.equals(directory.getParentFile());
+	}
+	
+	/**
+	 * Files that are maintained by the repository itself
+	 */
+	private boolean isIgnored(File file) {
+		String name = file.getName();
+		if (name.startsWith(TEMPORARY_PREFIX) || (name.startsWith(INDEX_FILE) && root.equals(file.getParentFile()))) {
+			return true;
+		}
+		if (file.getPath().startsWith(root.getPath() + File.separator + BLOB_DIRECTORY + File.separator)) {
+			return true;
+		}
+		for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+			if (name.endsWith("." + algorithm.getExtension())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Applies a batch of changes to the artifacts and publishes them in a single new index
+	 * Because scans, uploads and the watcher can overlap, a parsed artifact never replaces one that was parsed from a more recent file and a removal only happens if the artifact is still the current one
+	 * Returns the artifacts that were removed from the index, either because they were removed or because they were replaced
+	 */
+	private synchronized List<IndexedArtifact> apply(Collection<FileArtifact> parsed, Collection<IndexedArtifact> removed) {
+		List<IndexedArtifact> added = new ArrayList<IndexedArtifact>();
+		List<IndexedArtifact> unregistered = new ArrayList<IndexedArtifact>();
+		for (IndexedArtifact artifact : removed) {
+			if (artifacts.remove(artifact)) {
+				unregistered.add(artifact);
+			}
+		}
+		for (FileArtifact artifact : parsed) {
+			IndexedArtifact previous = artifacts.get(artifact.getFile());
+			if (previous != null && previous.getIndexedModified() > artifact.getIndexedModified()) {
+				continue;
+			}
+			// in compact mode the stored artifact is a view on the catalog rather than the parsed artifact itself
+			added.add(artifacts.put(artifact));
+			if (previous != null) {
+				unregistered.add(previous);
+			}
+		}
+		if (!added.isEmpty() || !unregistered.isEmpty()) {
+			update(added, unregistered);
+			dirty = true;
+		}
+		return unregistered;
 	}
 	
-	private void scan(File dir) throws IOException {
-		for (File file : dir.listFiles()) {
-			if (file.isFile()) {
-				if (!lastModified.containsKey(file) || file.lastModified() > lastModified.get(file)) {
-					artifacts.put(file, new FileArtifact(file));
-					lastModified.put(file, file.lastModified());
+	/**
+	 * Removes the artifacts from the index in a single update and then deletes their files, along with their checksum files
+	 * Artifacts that are no longer the current one for their file are skipped, the artifacts that were deleted are returned
+	 */
+	public List<Artifact> delete(Collection<? extends Artifact> artifacts) throws IOException {
+		List<IndexedArtifact> indexed = new ArrayList<IndexedArtifact>();
+		for (Artifact artifact : artifacts) {
+			if (!(artifact instanceof IndexedArtifact)) {
+				// for instance a wrapped artifact, we delete whatever we have for its coordinates
+				artifact = getIndex().getArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), artifact.isTest());
+			}
+			if (artifact instanceof IndexedArtifact) {
+				indexed.add((IndexedArtifact) artifact);
+			}
+		}
+		List<Artifact> deleted = new ArrayList<Artifact>();
+		IOException failure = null;
+		// readers no longer find the artifacts before their files disappear
+		for (IndexedArtifact artifact : apply(Collections.<FileArtifact>emptyList(), indexed)) {
+			try {
+				Files.deleteIfExists(artifact.getFile().toPath());
+				for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+					Files.deleteIfExists(new File(artifact.getFile().getPath() + "." + algorithm.getExtension()).toPath());
+				}
+				deleted.add(artifact);
+			}
+			catch (IOException e) {
+				if (failure == null) {
+					failure = e;
 				}
 			}
-			else if (file.isDirectory())
-				scan(file);
-		}		
+		}
+		if (deduplicate && !deleted.isEmpty()) {
+			orphanedBlobs = true;
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return deleted;
+	}
+	
+	/**
+	 * Whether blobs may have become unused since the last cleanup
+	 */
+	boolean hasOrphanedBlobs() {
+		return orphanedBlobs;
+	}
+	
+	/**
+	 * The current snapshot of the lookup index
+	 */
+	ArtifactIndex getSnapshot() {
+		return getIndex();
+	}
+
+	/**
+	 * Stops watching the file system if the repository is live and persists any pending changes to the index
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized(scanLock) {
+			if (watcher != null) {
+				watcher.close();
+				watcher = null;
+			}
+			if (persistent && dirty) {
+				saveIndex();
+			}
+		}
 	}
 
 	@Override
-	protected List<FileArtifact> getArtifacts() {
-		return new ArrayList<FileArtifact>(artifacts.values());
+	protected Collection<IndexedArtifact> getArtifacts() {
+		return artifacts.values();
 	}
 
 	@Override
 	public Artifact create(String groupId, String artifactId, String version, String packaging, InputStream input, boolean isTest) throws IOException {
+		long started = start();
 		String fileName = formatFileName(groupId, artifactId, version, packaging);
 		
-		if (fileNameRegex != null)
-			fileName = fileName.replaceAll(fileNameRegex, "$1");
+		if (fileNamePattern != null)
+			fileName = fileNamePattern.matcher(fileName).replaceAll("$1");
 		
 		// if it's a test, append that to the filename
-		if (isTest)
-			fileName = fileName.replaceAll("(.*)(\\.[^.]+)$", "$1-tests$2");
+		if (isTest) {
+			int extension = fileName.lastIndexOf('.');
+			if (extension >= 0 && extension < fileName.length() - 1)
+				fileName = fileName.substring(0, extension) + "-tests" + fileName.substring(extension);
+		}
 		
 		File file = new File(root, fileName);
 		
@@ -95,14 +511,203 @@ public class FileRepository extends BaseRepository implements WritableRepository
 		if (!file.getParentFile().exists())
 			file.getParentFile().mkdirs();
 		
-		FileOutputStream output = new FileOutputStream(file);
+		// we write to a temporary file in the same directory so readers never see a partial artifact
+		File temporary = File.createTempFile(TEMPORARY_PREFIX, ".tmp", file.getParentFile());
+		FileArtifact artifact;
+		IndexedArtifact stored;
 		try {
-			RepositoryUtils.copy(input, output);
+			// all the checksums are calculated in the same pass that writes the file, deduplication needs the SHA-256 even if it is not published
+			// an algorithm that the platform does not provide gets no checksum file, a reader that asks for it anyway gets a meaningful exception
+			List<HashAlgorithm> algorithms = new ArrayList<HashAlgorithm>();
+			for (HashAlgorithm algorithm : checksums) {
+				if (algorithm.isAvailable()) {
+					algorithms.add(algorithm);
+				}
+			}
+			if (deduplicate && !algorithms.contains(HashAlgorithm.SHA256)) {
+				algorithms.add(HashAlgorithm.SHA256);
+			}
+			MultiDigestOutputStream output = new MultiDigestOutputStream(new FileOutputStream(temporary), algorithms);
+			try {
+				RepositoryUtils.copy(input, output);
+			}
+			finally {
+				output.close();
+			}
+			// the digests are reset once they are read so the hashes can only be requested once
+			Map<HashAlgorithm, String> hashes = output.getHashes();
+			// only uploads of the same file have to wait for one another
+			UploadLock lock = lock(file);
+			try {
+				// the checksum files of a previous artifact are removed first, a coarse timestamp could otherwise make them look valid for the new one until they are rewritten
+				for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+					Files.deleteIfExists(new File(file.getPath() + "." + algorithm.getExtension()).toPath());
+				}
+				if (deduplicate) {
+					publishBlob(temporary, file, hashes.get(HashAlgorithm.SHA256));
+				}
+				else {
+					publish(temporary, file);
+				}
+				// a link has the timestamp of the blob which can be older than the artifact it replaces, it is indexed with the time of the upload instead
+				artifact = parse(file, file.length(), deduplicate ? Math.max(file.lastModified(), System.currentTimeMillis()) : file.lastModified());
+				apply(Arrays.asList(artifact), Collections.<IndexedArtifact>emptyList());
+				stored = artifacts.get(file);
+				// the checksum files are written after the artifact, otherwise they would briefly appear valid for the previous artifact
+				// in between readers find no checksum file and hash the content itself
+				for (Map.Entry<HashAlgorithm, String> hash : hashes.entrySet()) {
+					if (checksums.contains(hash.getKey()) || deduplicate) {
+						artifact.writeChecksum(hash.getKey(), hash.getValue());
+						// in compact mode we return a view on the catalog which caches its own hashes
+						if (stored instanceof CatalogArtifact) {
+							((CatalogArtifact) stored).setHash(hash.getKey(), hash.getValue());
+						}
+					}
+				}
+			}
+			finally {
+				unlock(file, lock);
+			}
 		}
 		finally {
-			output.close();
+			if (temporary.exists()) {
+				temporary.delete();
+			}
+		}
+		timed(Operation.CREATE, started);
+		return stored == null ? artifact : stored;
+	}
+	
+	/**
+	 * Atomically replaces the target with the temporary file, if the file system does not support that we fall back to a regular replace
+	 */
+	static void publish(File temporary, File target) throws IOException {
+		try {
+			Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
 		}
-		return new FileArtifact(file);
+	}
+	
+	/**
+	 * Stores the content in the blob for its digest, unless that blob already exists, and publishes a hardlink to the blob as the target
+	 * If the file system refuses the hardlink, a regular copy is published instead
+	 */
+	private void publishBlob(File temporary, File target, String digest) throws IOException {
+		blobLock.readLock().lock();
+		try {
+			File blob = getBlob(digest);
+			// the timestamp of an existing blob is shared by all the artifacts that link to it, so it is never touched
+			if (!blob.exists()) {
+				blob.getParentFile().mkdirs();
+				// if another upload of the same content beats us to it, one identical blob replaces the other
+				publish(temporary, blob);
+			}
+			if (target.exists()) {
+				orphanedBlobs = true;
+			}
+			// the link is created next to the target and moved in place so readers never see a missing file
+			File link = new File(target.getParentFile(), TEMPORARY_PREFIX + UUID.randomUUID() + ".tmp");
+			try {
+				Files.createLink(link.toPath(), blob.toPath());
+			}
+			catch (IOException | UnsupportedOperationException e) {
+				if (!temporary.exists()) {
+					Files.copy(blob.toPath(), temporary.toPath());
+				}
+				publish(temporary, target);
+				return;
+			}
+			try {
+				publish(link, target);
+			}
+			finally {
+				if (link.exists()) {
+					link.delete();
+				}
+			}
+		}
+		finally {
+			blobLock.readLock().unlock();
+		}
+	}
+	
+	private File getBlob(String digest) {
+		return new File(new File(new File(root, BLOB_DIRECTORY), digest.substring(0, 2)), digest);
+	}
+	
+	/**
+	 * Removes the blobs that are no longer linked from any artifact and returns how many were removed
+	 * This happens automatically at the end of a full scan if artifacts were replaced or removed since the last cleanup
+	 */
+	public int cleanBlobs() throws IOException {
+		File blobs = new File(root, BLOB_DIRECTORY);
+		if (!blobs.isDirectory()) {
+			return 0;
+		}
+		int removed = 0;
+		blobLock.writeLock().lock();
+		try {
+			orphanedBlobs = false;
+			DirectoryStream<Path> prefixes = Files.newDirectoryStream(blobs.toPath());
+			try {
+				for (Path prefix : prefixes) {
+					if (Files.isDirectory(prefix, LinkOption.NOFOLLOW_LINKS)) {
+						DirectoryStream<Path> stream = Files.newDirectoryStream(prefix);
+						try {
+							for (Path blob : stream) {
+								Object links = Files.getAttribute(blob, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+								if (links instanceof Integer && (Integer) links <= 1 && Files.deleteIfExists(blob)) {
+									removed++;
+								}
+							}
+						}
+						finally {
+							stream.close();
+						}
+					}
+				}
+			}
+			finally {
+				prefixes.close();
+			}
+		}
+		finally {
+			blobLock.writeLock().unlock();
+		}
+		return removed;
+	}
+	
+	private UploadLock lock(File file) {
+		UploadLock lock;
+		synchronized(uploadLocks) {
+			lock = uploadLocks.get(file);
+			if (lock == null) {
+				lock = new UploadLock();
+				uploadLocks.put(file, lock);
+			}
+			lock.users++;
+		}
+		lock.lock();
+		return lock;
+	}
+	
+	private void unlock(File file, UploadLock lock) {
+		lock.unlock();
+		synchronized(uploadLocks) {
+			if (--lock.users == 0) {
+				uploadLocks.remove(file);
+			}
+		}
+	}
+	
+	/**
+	 * A lock that is only kept around as long as someone is using it
+	 */
+	private static class UploadLock extends ReentrantLock {
+		private static final long serialVersionUID = 1L;
+		private int users;
 	}
 	
 	public String getFileNameRegex() {
@@ -111,5 +716,77 @@ public class FileRepository extends BaseRepository implements WritableRepository
 
 	public void setFileNameRegex(String fileNameRegex) {
 		this.fileNameRegex = fileNameRegex;
+		this.fileNamePattern = fileNameRegex == null ? null : Pattern.compile(fileNameRegex);
+	}
+
+	public ForkJoinPool getScanPool() {
+		return scanPool;
+	}
+
+	public void setScanPool(ForkJoinPool scanPool) {
+		this.scanPool = scanPool;
+	}
+
+	public boolean isLive() {
+		return live;
+	}
+
+	public void setLive(boolean live) {
+		this.live = live;
+	}
+
+	public List<HashAlgorithm> getChecksums() {
+		return checksums;
+	}
+
+	public void setChecksums(List<HashAlgorithm> checksums) {
+		this.checksums = checksums;
+	}
+
+	public boolean isPersistent() {
+		return persistent;
+	}
+
+	public void setPersistent(boolean persistent) {
+		this.persistent = persistent;
+	}
+
+	public boolean isCoordinatesFromPath() {
+		return coordinatesFromPath;
+	}
+
+	public void setCoordinatesFromPath(boolean coordinatesFromPath) {
+		this.coordinatesFromPath = coordinatesFromPath;
+	}
+
+	public boolean isCompact() {
+		return compact;
+	}
+
+	/**
+	 * The storage mode can only be changed before the repository is scanned
+	 */
+	public void setCompact(boolean compact) {
+		if (compact != this.compact) {
+			if (!artifacts.values().isEmpty()) {
+				throw new IllegalStateException("The storage mode can not be changed once the repository contains artifacts");
+			}
+			this.compact = compact;
+			this.artifacts = compact ? new ArtifactCatalog(this, root) : new ArtifactMap();
+		}
+	}
+
+	public boolean isDeduplicate() {
+		return deduplicate;
+	}
+
+	/**
+	 * Deduplication needs a file system that supports hardlinks and reports their link count
+	 */
+	public void setDeduplicate(boolean deduplicate) {
+		if (deduplicate && !root.toPath().getFileSystem().supportedFileAttributeViews().contains("unix")) {
+			throw new UnsupportedOperationException("Deduplication requires a file system with hardlinks and link counts");
+		}
+		this.deduplicate = deduplicate;
 	}
 }
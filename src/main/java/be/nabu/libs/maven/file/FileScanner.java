@@ -0,0 +1,254 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Walks a directory tree and parses the files that the handler considers modified
+ * Each entry is stat'ed only once, symbolic links are followed like {@link File#isFile()} would
+ * If a pool is given, the directories are listed and the artifacts are parsed in parallel, this finds the same files as the serial walk
+ */
+class FileScanner {
+
+	interface Handler {
+		/**
+		 * Whether or not the file has to be (re)parsed, this can be called concurrently
+		 */
+		public boolean isModified(File file, BasicFileAttributes attributes);
+		/**
+		 * Parse the file into an artifact, this can be called concurrently
+		 */
+		public FileArtifact parse(File file, BasicFileAttributes attributes) throws IOException;
+		/**
+		 * Whether the directory should not be walked at all
+		 */
+		public boolean isSkipped(File directory);
+	}
+
+	private File root;
+	private ForkJoinPool pool;
+	private Handler handler;
+
+	FileScanner(File root, ForkJoinPool pool, Handler handler) {
+		this.root = root;
+		this.pool = pool;
+		this.handler = handler;
+	}
+
+	/**
+	 * Returns the artifacts for all the files that were modified
+	 * If a set is passed in, all the files that were encountered are added to it, it must be thread safe if a pool is used
+	 */
+	public List<FileArtifact> scan(Set<File> visited) throws IOException {
+		Queue<FileArtifact> parsed = new ConcurrentLinkedQueue<FileArtifact>();
+		if (pool == null) {
+			walk(parsed, visited);
+		}
+		else {
+			try {
+				Object rootKey = Files.readAttributes(root.toPath(), BasicFileAttributes.class).fileKey();
+				pool.invoke(new DirectoryTask(root.toPath(), parsed, visited, new Ancestor(root.toPath(), rootKey, null)));
+			}
+			catch (NoSuchFileException e) {
+				// like the serial walk, a root that does not exist has no files
+			}
+			catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+		return new ArrayList<FileArtifact>(parsed);
+	}
+
+	private void walk(final Queue<FileArtifact> parsed, final Set<File> visited) throws IOException {
+		Files.walkFileTree(root.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+				return handler.isSkipped(directory.toFile()) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+			}
+			@Override
+			public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) throws IOException {
+				if (attributes.isRegularFile()) {
+					File file = path.toFile();
+					if (visited != null) {
+						visited.add(file);
+					}
+					if (handler.isModified(file, attributes)) {
+						parsed.add(handler.parse(file, attributes));
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+			@Override
+			public FileVisitResult visitFileFailed(Path path, IOException exception) throws IOException {
+				// symbolic link cycles and files that disappeared during the scan are skipped
+				if (exception instanceof FileSystemLoopException || exception instanceof NoSuchFileException) {
+					return FileVisitResult.CONTINUE;
+				}
+				throw exception;
+			}
+		});
+	}
+
+	private class DirectoryTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private Path directory;
+		private Queue<FileArtifact> parsed;
+		private Set<File> visited;
+		private Ancestor ancestors;
+
+		DirectoryTask(Path directory, Queue<FileArtifact> parsed, Set<File> visited, Ancestor ancestors) {
+			this.directory = directory;
+			this.parsed = parsed;
+			this.visited = visited;
+			this.ancestors = ancestors;
+		}
+
+		@Override
+		protected void compute() {
+			List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+			try {
+				DirectoryStream<Path> stream;
+				try {
+					stream = Files.newDirectoryStream(directory);
+				}
+				// the directory disappeared after it was listed
+				catch (NoSuchFileException e) {
+					return;
+				}
+				try {
+					for (Path child : stream) {
+						BasicFileAttributes attributes;
+						try {
+							attributes = Files.readAttributes(child, BasicFileAttributes.class);
+						}
+						catch (NoSuchFileException e) {
+							continue;
+						}
+						if (attributes.isRegularFile()) {
+							File file = child.toFile();
+							if (visited != null) {
+								visited.add(file);
+							}
+							if (handler.isModified(file, attributes)) {
+								tasks.add(new ParseTask(file, attributes, parsed).fork());
+							}
+						}
+						// like the serial walk, a directory is only skipped if it is one of its own ancestors, so a directory that can be reached in several ways is visited each time
+						else if (attributes.isDirectory() && !handler.isSkipped(child.toFile()) && !ancestors.contains(child, attributes.fileKey())) {
+							tasks.add(new DirectoryTask(child, parsed, visited, new Ancestor(child, attributes.fileKey(), ancestors)).fork());
+						}
+					}
+				}
+				finally {
+					stream.close();
+				}
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			for (ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+		}
+	}
+
+	/**
+	 * The chain of directories from the root to the one that is being listed
+	 */
+	private static class Ancestor {
+		private Path path;
+		private Object key;
+		private Ancestor parent;
+
+		private Ancestor(Path path, Object key, Ancestor parent) {
+			this.path = path;
+			this.key = key;
+			this.parent = parent;
+		}
+
+		/**
+		 * The file key tells us whether two paths are the same directory, if the file system does not support it we ask it to compare the paths
+		 */
+		private boolean contains(Path directory, Object key) {
+			for (Ancestor ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+				if (key != null && ancestor.key != null) {
+					if (key.equals(ancestor.key)) {
+						return true;
+					}
+				}
+				else {
+					try {
+						if (Files.isSameFile(directory, ancestor.path)) {
+							return true;
+						}
+					}
+					catch (IOException e) {
+						// if we can't compare them, we assume they are different
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+	private class ParseTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private File file;
+		private BasicFileAttributes attributes;
+		private Queue<FileArtifact> parsed;
+
+		ParseTask(File file, BasicFileAttributes attributes, Queue<FileArtifact> parsed) {
+			this.file = file;
+			this.attributes = attributes;
+			this.parsed = parsed;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				parsed.add(handler.parse(file, attributes));
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
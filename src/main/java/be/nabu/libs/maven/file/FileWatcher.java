@@ -0,0 +1,198 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watches the root of a file repository and all its subdirectories and pushes the changes to the repository
+ * If events are lost (overflow) or can not be applied, the repository is marked as stale so the next scan does a full walk
+ */
+class FileWatcher implements Runnable, Closeable {
+
+	private FileRepository repository;
+	private Path root;
+	private WatchService service;
+	private Thread thread;
+	private Map<WatchKey, Path> directories = new ConcurrentHashMap<WatchKey, Path>();
+	
+	/**
+	 * The directories we are watching, a deleted path is only treated as a directory if it is one of these
+	 */
+	private Set<Path> watched = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+	private volatile boolean running, stale;
+
+	FileWatcher(FileRepository repository, File root) {
+		this.repository = repository;
+		this.root = root.toPath();
+	}
+
+	public void start() throws IOException {
+		service = root.getFileSystem().newWatchService();
+		register(root);
+		running = true;
+		thread = new Thread(this, "maven-repository-watcher: " + root);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Registers the directory and all its subdirectories
+	 */
+	private void register(Path directory) throws IOException {
+		Files.walkFileTree(directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+				if (repository.isSkipped(directory.toFile())) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				directories.put(key, directory);
+				watched.add(directory);
+				return FileVisitResult.CONTINUE;
+			}
+			@Override
+			public FileVisitResult visitFileFailed(Path path, IOException exception) throws IOException {
+				if (exception instanceof FileSystemLoopException || exception instanceof NoSuchFileException) {
+					return FileVisitResult.CONTINUE;
+				}
+				throw exception;
+			}
+		});
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (running) {
+				WatchKey key = service.take();
+				Path directory = directories.get(key);
+				// the events are deduplicated per path, the last one wins
+				Map<Path, WatchEvent.Kind<?>> changes = new LinkedHashMap<Path, WatchEvent.Kind<?>>();
+				boolean overflow = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						overflow = true;
+					}
+					else if (directory != null) {
+						Path path = directory.resolve((Path) event.context());
+						changes.remove(path);
+						changes.put(path, event.kind());
+					}
+				}
+				if (!key.reset()) {
+					directories.remove(key);
+				}
+				try {
+					if (overflow) {
+						register(root);
+						repository.scanAll();
+					}
+					else {
+						for (Map.Entry<Path, WatchEvent.Kind<?>> change : changes.entrySet()) {
+							apply(change.getKey(), change.getValue());
+						}
+					}
+				}
+				catch (IOException e) {
+					stale = true;
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			// stop watching
+		}
+		catch (ClosedWatchServiceException e) {
+			// stop watching
+		}
+		finally {
+			running = false;
+		}
+	}
+
+	private void apply(Path path, WatchEvent.Kind<?> kind) throws IOException {
+		if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+			if (watched.remove(path)) {
+				Iterator<Path> iterator = watched.iterator();
+				while (iterator.hasNext()) {
+					if (iterator.next().startsWith(path)) {
+						iterator.remove();
+					}
+				}
+				repository.removeDirectory(path.toFile());
+			}
+			else {
+				repository.remove(path.toFile());
+			}
+		}
+		else if (Files.isDirectory(path)) {
+			// a new directory may already contain files by the time we register it, so scan it after registration
+			if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+				register(path);
+				repository.scan(path.toFile());
+			}
+		}
+		else {
+			repository.refresh(path.toFile());
+		}
+	}
+
+	/**
+	 * Whether the watcher is still running and has not missed any changes
+	 */
+	public boolean isCurrent() {
+		return running && !stale;
+	}
+
+	/**
+	 * Should be called after a full scan has brought the repository up to date again
+	 */
+	void clearStale() {
+		stale = false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		if (service != null) {
+			service.close();
+		}
+	}
+}
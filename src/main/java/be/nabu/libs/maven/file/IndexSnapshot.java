@@ -0,0 +1,154 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists the parsed coordinates of the artifacts in a file repository so they don't have to be parsed again after a restart
+ * The format is a simple binary one where all strings (apart from the paths) are written once and referenced by id afterwards
+ */
+class IndexSnapshot {
+
+	private static final int MAGIC = 0x4e4d5249;
+	private static final int FORMAT = 2;
+
+	static class Entry {
+		long size, lastModified;
+		String groupId, artifactId, version, packaging;
+	}
+
+	/**
+	 * Loads a previously saved snapshot, keyed by the file it describes
+	 * If the snapshot does not exist or can not be read, an empty map is returned, the repository will simply parse everything
+	 */
+	static Map<File, Entry> load(File root, File snapshot) {
+		Map<File, Entry> entries = new HashMap<File, Entry>();
+		if (!snapshot.isFile()) {
+			return entries;
+		}
+		try {
+			DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot)));
+			try {
+				if (input.readInt() != MAGIC || input.readInt() != FORMAT) {
+					return entries;
+				}
+				List<String> strings = new ArrayList<String>();
+				int amount = input.readInt();
+				for (int i = 0; i < amount; i++) {
+					File file = new File(root, input.readUTF().replace('/', File.separatorChar));
+					Entry entry = new Entry();
+					entry.size = input.readLong();
+					entry.lastModified = input.readLong();
+					entry.groupId = readString(input, strings);
+					entry.artifactId = readString(input, strings);
+					entry.version = readString(input, strings);
+					entry.packaging = readString(input, strings);
+					entries.put(file, entry);
+				}
+			}
+			finally {
+				input.close();
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			// a corrupt snapshot is discarded
+			entries.clear();
+		}
+		return entries;
+	}
+
+	/**
+	 * Writes the snapshot to a temporary file first and moves it in place so a crash never leaves a partial snapshot
+	 * The list must not change while it is written, the amount of entries is written up front
+	 * Whether an artifact is a test artifact is not stored, it follows from the file name
+	 */
+	static void save(File root, File snapshot, List<? extends IndexedArtifact> artifacts) throws IOException {
+		File temporary = new File(snapshot.getPath() + ".tmp");
+		String rootPath = root.getPath() + File.separator;
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT);
+			output.writeInt(artifacts.size());
+			Map<String, Integer> strings = new HashMap<String, Integer>();
+			for (IndexedArtifact artifact : artifacts) {
+				String path = artifact.getFile().getPath();
+				if (path.startsWith(rootPath)) {
+					path = path.substring(rootPath.length());
+				}
+				output.writeUTF(path.replace(File.separatorChar, '/'));
+				output.writeLong(artifact.getIndexedSize());
+				output.writeLong(artifact.getIndexedModified());
+				writeString(output, strings, artifact.getGroupId());
+				writeString(output, strings, artifact.getArtifactId());
+				writeString(output, strings, artifact.getVersion());
+				writeString(output, strings, artifact.getPackaging());
+			}
+		}
+		finally {
+			output.close();
+		}
+		Files.move(temporary.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * 0 is null, -1 is a new string that is written inline, anything else refers to an earlier string
+	 */
+	private static void writeString(DataOutputStream output, Map<String, Integer> strings, String value) throws IOException {
+		if (value == null) {
+			output.writeInt(0);
+		}
+		else if (strings.containsKey(value)) {
+			output.writeInt(strings.get(value));
+		}
+		else {
+			output.writeInt(-1);
+			output.writeUTF(value);
+			strings.put(value, strings.size() + 1);
+		}
+	}
+
+	private static String readString(DataInputStream input, List<String> strings) throws IOException {
+		int id = input.readInt();
+		if (id == 0) {
+			return null;
+		}
+		else if (id < 0) {
+			String value = input.readUTF();
+			strings.add(value);
+			return value;
+		}
+		else {
+			return strings.get(id - 1);
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.file;
+
+import java.io.File;
+
+import be.nabu.libs.maven.api.ChannelArtifact;
+import be.nabu.libs.maven.api.HashedArtifact;
+
+/**
+ * An artifact that is backed by a file in a file repository
+ */
+interface IndexedArtifact extends HashedArtifact, ChannelArtifact {
+	public File getFile();
+	/**
+	 * The size of the file at the time it was indexed
+	 */
+	public long getIndexedSize();
+	/**
+	 * The modification time of the file at the time it was indexed, or the time it was published if it is deduplicated and that is later
+	 */
+	public long getIndexedModified();
+}
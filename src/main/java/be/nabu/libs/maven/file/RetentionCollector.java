@@ -0,0 +1,235 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import be.nabu.libs.maven.ArtifactIndex;
+import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.file.RetentionReport.Reason;
+import be.nabu.libs.maven.file.RetentionReport.Removal;
+
+/**
+ * Applies a retention policy to a file repository, either on demand or periodically in the background
+ * The candidates are selected from a single snapshot of the index, they are then deleted in batches where each batch is removed from the index in one update
+ * The amount of deletes per second is limited so the collector does not compete with the regular traffic for disk access
+ */
+public class RetentionCollector implements Closeable {
+
+	private FileRepository repository;
+	private RetentionPolicy policy;
+	
+	private int batchSize = 50;
+	private int deletesPerSecond = 100;
+	
+	/**
+	 * Whether the background runs only report what they would remove
+	 */
+	private boolean dryRun;
+	
+	private ScheduledExecutorService scheduler;
+	private Object runLock = new Object();
+	private volatile RetentionReport lastReport;
+	
+	public RetentionCollector(FileRepository repository, RetentionPolicy policy) {
+		this.repository = repository;
+		this.policy = policy;
+	}
+	
+	/**
+	 * Runs the collector periodically in a background thread, the first run happens after one interval
+	 */
+	public synchronized void start(long interval, TimeUnit unit) {
+		if (scheduler != null) {
+			throw new IllegalStateException("The collector is already running");
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "maven-repository-retention");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					collect(dryRun);
+				}
+				catch (IOException | RuntimeException e) {
+					// the next run will try again
+				}
+			}
+		}, interval, interval, unit);
+	}
+	
+	@Override
+	public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+	
+	/**
+	 * Selects the artifacts that the policy no longer retains and removes them, unless this is a dry run
+	 * Only one run can be active at a time
+	 */
+	public RetentionReport collect(boolean dryRun) throws IOException {
+		synchronized(runLock) {
+			return run(dryRun);
+		}
+	}
+	
+	private RetentionReport run(boolean dryRun) throws IOException {
+		RetentionReport report = new RetentionReport(dryRun);
+		List<Removal> selected = select();
+		if (dryRun) {
+			for (Removal removal : selected) {
+				report.add(removal);
+			}
+		}
+		else {
+			Set<Artifact> deleted = Collections.newSetFromMap(new IdentityHashMap<Artifact, Boolean>());
+			try {
+				for (int i = 0; i < selected.size(); i += batchSize) {
+					List<Artifact> batch = new ArrayList<Artifact>();
+					for (Removal removal : selected.subList(i, Math.min(i + batchSize, selected.size()))) {
+						batch.add(removal.getArtifact());
+					}
+					deleted.addAll(repository.delete(batch));
+					if (deletesPerSecond > 0 && i + batchSize < selected.size()) {
+						Thread.sleep(batch.size() * 1000L / deletesPerSecond);
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				// we were asked to stop, report what we did so far
+				Thread.currentThread().interrupt();
+			}
+			// artifacts that changed since the selection are not deleted
+			for (Removal removal : selected) {
+				if (deleted.contains(removal.getArtifact())) {
+					report.add(removal);
+				}
+			}
+			if (repository.isDeduplicate() && repository.hasOrphanedBlobs()) {
+				repository.cleanBlobs();
+			}
+		}
+		report.stop();
+		lastReport = report;
+		return report;
+	}
+	
+	/**
+	 * Walks the versions of every artifact from new to old, the latest version is always retained
+	 */
+	private List<Removal> select() {
+		List<Removal> selected = new ArrayList<Removal>();
+		ArtifactIndex index = repository.getSnapshot();
+		long now = System.currentTimeMillis();
+		for (String groupId : index.getGroups()) {
+			for (String artifactId : index.getArtifacts(groupId)) {
+				SortedSet<String> versions = index.getVersions(groupId, artifactId);
+				List<String> descending = new ArrayList<String>(versions);
+				Collections.reverse(descending);
+				int snapshots = 0;
+				for (int i = 0; i < descending.size(); i++) {
+					String version = descending.get(i);
+					boolean snapshot = version.endsWith("-SNAPSHOT");
+					if (snapshot) {
+						snapshots++;
+					}
+					if (i == 0) {
+						continue;
+					}
+					for (boolean isTest : new boolean [] { false, true }) {
+						Artifact artifact = index.getArtifact(groupId, artifactId, version, isTest);
+						if (artifact != null) {
+							Reason reason = getReason(artifact, snapshot, snapshots, now);
+							if (reason != null) {
+								selected.add(new Removal(artifact, reason, artifact instanceof IndexedArtifact ? ((IndexedArtifact) artifact).getIndexedSize() : 0));
+							}
+						}
+					}
+				}
+			}
+		}
+		return selected;
+	}
+	
+	private Reason getReason(Artifact artifact, boolean snapshot, int snapshots, long now) {
+		if (snapshot) {
+			if (policy.getSnapshotsToKeep() > 0 && snapshots > policy.getSnapshotsToKeep()) {
+				return Reason.SNAPSHOT_COUNT;
+			}
+			else if (policy.getMaximumSnapshotAge() > 0 && now - artifact.getLastModified().getTime() > policy.getMaximumSnapshotAge()) {
+				return Reason.SNAPSHOT_AGE;
+			}
+		}
+		else if (policy.getMaximumReleaseAge() > 0 && !(policy.isProtectInternalReleases() && repository.isInternal(artifact)) && now - artifact.getLastModified().getTime() > policy.getMaximumReleaseAge()) {
+			return Reason.RELEASE_AGE;
+		}
+		return null;
+	}
+	
+	/**
+	 * The report of the last run, whether it was started in the background or on demand
+	 */
+	public RetentionReport getLastReport() {
+		return lastReport;
+	}
+	public RetentionPolicy getPolicy() {
+		return policy;
+	}
+	public boolean isDryRun() {
+		return dryRun;
+	}
+	public void setDryRun(boolean dryRun) {
+		this.dryRun = dryRun;
+	}
+	public int getBatchSize() {
+		return batchSize;
+	}
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+	public int getDeletesPerSecond() {
+		return deletesPerSecond;
+	}
+	/**
+	 * 0 or less means no limit
+	 */
+	public void setDeletesPerSecond(int deletesPerSecond) {
+		this.deletesPerSecond = deletesPerSecond;
+	}
+}
@@ -0,0 +1,64 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.file;
+
+/**
+ * Decides which versions of an artifact can be removed, the latest version of an artifact is always kept
+ * Releases of internal groups (see the domains of the repository) are never removed, this can only be turned off explicitly
+ * A value of 0 or less disables a rule
+ */
+public class RetentionPolicy {
+
+	/**
+	 * How many snapshot versions are kept per artifact
+	 */
+	private int snapshotsToKeep;
+	
+	/**
+	 * The age (in milliseconds) after which a snapshot, resp. a release that is no longer the latest version, is removed
+	 */
+	private long maximumSnapshotAge, maximumReleaseAge;
+	
+	private boolean protectInternalReleases = true;
+	
+	public int getSnapshotsToKeep() {
+		return snapshotsToKeep;
+	}
+	public void setSnapshotsToKeep(int snapshotsToKeep) {
+		this.snapshotsToKeep = snapshotsToKeep;
+	}
+	public long getMaximumSnapshotAge() {
+		return maximumSnapshotAge;
+	}
+	public void setMaximumSnapshotAge(long maximumSnapshotAge) {
+		this.maximumSnapshotAge = maximumSnapshotAge;
+	}
+	public long getMaximumReleaseAge() {
+		return maximumReleaseAge;
+	}
+	public void setMaximumReleaseAge(long maximumReleaseAge) {
+		this.maximumReleaseAge = maximumReleaseAge;
+	}
+	public boolean isProtectInternalReleases() {
+		return protectInternalReleases;
+	}
+	public void setProtectInternalReleases(boolean protectInternalReleases) {
+		this.protectInternalReleases = protectInternalReleases;
+	}
+}
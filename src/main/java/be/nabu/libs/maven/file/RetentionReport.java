@@ -0,0 +1,111 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.file;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import be.nabu.libs.maven.api.Artifact;
+
+/**
+ * The result of a run of the {@link RetentionCollector}, in a dry run it lists what would have been removed
+ */
+public class RetentionReport {
+
+	public enum Reason {
+		SNAPSHOT_COUNT,
+		SNAPSHOT_AGE,
+		RELEASE_AGE
+	}
+	
+	private boolean dryRun;
+	private Date started, stopped;
+	private List<Removal> removals = new ArrayList<Removal>();
+	private long size;
+	
+	RetentionReport(boolean dryRun) {
+		this.dryRun = dryRun;
+		this.started = new Date();
+	}
+	
+	void add(Removal removal) {
+		removals.add(removal);
+		this.size += removal.size;
+	}
+	
+	void stop() {
+		this.stopped = new Date();
+	}
+	
+	public boolean isDryRun() {
+		return dryRun;
+	}
+	public Date getStarted() {
+		return started;
+	}
+	public Date getStopped() {
+		return stopped;
+	}
+	public List<Removal> getRemovals() {
+		return Collections.unmodifiableList(removals);
+	}
+	/**
+	 * The total size of the removed artifacts in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(dryRun ? "Would remove " : "Removed ").append(removals.size()).append(" artifacts (").append(size).append(" bytes)");
+		for (Removal removal : removals) {
+			builder.append("\n\t").append(removal);
+		}
+		return builder.toString();
+	}
+	
+	public static class Removal {
+		private Artifact artifact;
+		private Reason reason;
+		private long size;
+		
+		Removal(Artifact artifact, Reason reason, long size) {
+			this.artifact = artifact;
+			this.reason = reason;
+			this.size = size;
+		}
+		public Artifact getArtifact() {
+			return artifact;
+		}
+		public Reason getReason() {
+			return reason;
+		}
+		public long getSize() {
+			return size;
+		}
+		@Override
+		public String toString() {
+			return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion() + (artifact.isTest() ? ":tests" : "") + " (" + reason + ", " + size + " bytes)";
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.file;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns an int to each distinct string so it is only stored once, 0 is reserved for null
+ * Only one thread may add symbols at a time, any number of threads can look up symbols and resolve the ids they got
+ */
+class SymbolTable {
+
+	private Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private volatile String [] symbols = new String[256];
+	private int size = 1;
+	
+	int intern(String value) {
+		if (value == null) {
+			return 0;
+		}
+		Integer id = ids.get(value);
+		if (id == null) {
+			String [] symbols = this.symbols;
+			if (size == symbols.length) {
+				symbols = Arrays.copyOf(symbols, symbols.length * 2);
+			}
+			symbols[size] = value;
+			// the array is published after the symbol is set
+			this.symbols = symbols;
+			id = size++;
+			ids.put(value, id);
+		}
+		return id;
+	}
+	
+	/**
+	 * Returns -1 if the string is not a symbol
+	 */
+	int find(String value) {
+		if (value == null) {
+			return 0;
+		}
+		Integer id = ids.get(value);
+		return id == null ? -1 : id;
+	}
+	
+	String get(int id) {
+		return symbols[id];
+	}
+	
+	int size() {
+		return size - 1;
+	}
+}
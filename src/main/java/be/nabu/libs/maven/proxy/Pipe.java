@@ -0,0 +1,168 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded buffer between one thread that writes and one thread that reads
+ * Unlike a piped stream the writer can make the reader fail, which is how a partial download is kept out of the local repository
+ * It waits on a lock rather than a monitor so a virtual thread that is waiting does not pin its carrier thread
+ */
+class Pipe extends InputStream {
+
+	private byte [] buffer;
+	private int start, length;
+	private boolean finished, closed;
+	private IOException failure;
+	private ReentrantLock lock = new ReentrantLock();
+	private Condition changed = lock.newCondition();
+	
+	Pipe(int size) {
+		this.buffer = new byte[size];
+	}
+	
+	/**
+	 * Blocks until there is room in the buffer, fails if the reader has closed the pipe
+	 */
+	void write(byte [] bytes, int offset, int amount) throws IOException {
+		lock.lock();
+		try {
+			while (amount > 0) {
+				while (length == buffer.length && !closed) {
+					await();
+				}
+				if (closed) {
+					throw new IOException("The pipe was closed by the reader");
+				}
+				int end = (start + length) % buffer.length;
+				int chunk = Math.min(amount, Math.min(buffer.length - length, buffer.length - end));
+				System.arraycopy(bytes, offset, buffer, end, chunk);
+				length += chunk;
+				offset += chunk;
+				amount -= chunk;
+				changed.signalAll();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * The reader gets the end of the stream once it has read everything in the buffer
+	 */
+	void finish() {
+		lock.lock();
+		try {
+			finished = true;
+			changed.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * The reader gets this exception on its next read, even if there is still data in the buffer
+	 */
+	void fail(IOException failure) {
+		lock.lock();
+		try {
+			this.failure = failure;
+			changed.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public int read() throws IOException {
+		byte [] single = new byte[1];
+		return read(single, 0, 1) <= 0 ? -1 : single[0] & 0xff;
+	}
+	
+	@Override
+	public int read(byte[] bytes, int offset, int amount) throws IOException {
+		lock.lock();
+		try {
+			while (length == 0 && !finished && failure == null && !closed) {
+				await();
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			else if (closed) {
+				throw new IOException("The pipe is closed");
+			}
+			else if (amount == 0) {
+				return 0;
+			}
+			else if (length == 0) {
+				return -1;
+			}
+			int chunk = Math.min(amount, Math.min(length, buffer.length - start));
+			System.arraycopy(buffer, start, bytes, offset, chunk);
+			start = (start + chunk) % buffer.length;
+			length -= chunk;
+			changed.signalAll();
+			return chunk;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public int available() {
+		lock.lock();
+		try {
+			return length;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			changed.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	private void await() throws InterruptedIOException {
+		try {
+			changed.await();
+		}
+		catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+
+import be.nabu.libs.maven.RepositoryUtils;
+import be.nabu.libs.maven.RepositoryUtils.HashAlgorithm;
+import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.api.HashedArtifact;
+
+/**
+ * An artifact that was found upstream, reading its content stores it in the local repository
+ * Once it is stored, everything is served from the local copy
+ */
+public class ProxiedArtifact implements HashedArtifact {
+
+	private ProxyRepository repository;
+	private String key;
+	private Artifact upstream;
+	private volatile Artifact stored;
+	
+	ProxiedArtifact(ProxyRepository repository, String key, Artifact upstream) {
+		this.repository = repository;
+		this.key = key;
+		this.upstream = upstream;
+	}
+	
+	@Override
+	public InputStream getContent() throws IOException {
+		return repository.getContent(this);
+	}
+	
+	@Override
+	public InputStream getPom() throws IOException {
+		Artifact stored = this.stored;
+		return stored == null ? upstream.getPom() : stored.getPom();
+	}
+	
+	/**
+	 * The checksums that the local copy or the upstream already have are preferred, only if neither has them is the content hashed
+	 * Hashing content that was not stored yet downloads it, which stores it in the local repository
+	 */
+	@Override
+	public String getHash(HashAlgorithm algorithm) throws IOException {
+		Artifact stored = this.stored;
+		if (stored instanceof HashedArtifact) {
+			return ((HashedArtifact) stored).getHash(algorithm);
+		}
+		else if (upstream instanceof HashedArtifact) {
+			return ((HashedArtifact) upstream).getHash(algorithm);
+		}
+		InputStream content = stored == null ? getContent() : stored.getContent();
+		try {
+			return RepositoryUtils.hash(content, algorithm);
+		}
+		finally {
+			content.close();
+		}
+	}
+	
+	String getKey() {
+		return key;
+	}
+	
+	/**
+	 * The artifact in the upstream repository
+	 */
+	public Artifact getUpstream() {
+		return upstream;
+	}
+	
+	/**
+	 * The artifact in the local repository, this is null as long as it has not been downloaded
+	 */
+	public Artifact getStored() {
+		return stored;
+	}
+	
+	void setStored(Artifact stored) {
+		this.stored = stored;
+	}
+
+	@Override
+	public String getPackaging() {
+		return upstream.getPackaging();
+	}
+	@Override
+	public String getGroupId() {
+		return upstream.getGroupId();
+	}
+	@Override
+	public String getVersion() {
+		return upstream.getVersion();
+	}
+	@Override
+	public String getArtifactId() {
+		return upstream.getArtifactId();
+	}
+	@Override
+	public Date getLastModified() {
+		Artifact stored = this.stored;
+		return stored == null ? upstream.getLastModified() : stored.getLastModified();
+	}
+	@Override
+	public boolean isTest() {
+		return upstream.isTest();
+	}
+}
@@ -0,0 +1,471 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.proxy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.nabu.libs.maven.RepositoryUtils;
+import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.api.Repository;
+import be.nabu.libs.maven.api.WritableRepository;
+
+/**
+ * A read-through proxy that serves artifacts from a local repository and fetches the ones it does not have yet from an upstream repository
+ * Concurrent requests for the same missing artifact lead to a single upstream lookup and a single download
+ * The first client that reads the content of a proxied artifact receives it while it is being written to the local repository, the others wait for it to be stored
+ * Artifacts that the upstream does not have either are remembered for a while so a misconfigured build can not hammer the upstream
+ * Once an artifact is stored locally it is never fetched again, this works well for releases, snapshots that change upstream are not refreshed
+ * The upstream metadata is cached for a while in the same way, with a single lookup for concurrent requests and the misses remembered as long as those of artifacts
+ */
+public class ProxyRepository implements WritableRepository {
+
+	private Repository upstream;
+	private WritableRepository local;
+	
+	/**
+	 * How long (in milliseconds) an artifact that does not exist upstream is not looked up again
+	 */
+	private long negativeTtl = TimeUnit.MINUTES.toMillis(5);
+	
+	/**
+	 * How long (in milliseconds) a client waits for a download that was started by another client before it reads from the upstream itself
+	 */
+	private long downloadTimeout = TimeUnit.SECONDS.toMillis(30);
+	
+	/**
+	 * The size of the buffer between the client that reads the content and the thread that writes it to the local repository
+	 */
+	private int pipeSize = 64 * 1024;
+	
+	/**
+	 * The misses per coordinate and when they expire
+	 * The expired misses are swept at most once per sweep interval, if there are still too many afterwards new misses are not remembered until the next sweep
+	 */
+	private Map<String, Long> misses = new ConcurrentHashMap<String, Long>();
+	private int maximumMisses = 10000;
+	private long sweepInterval = TimeUnit.MINUTES.toMillis(1);
+	private AtomicLong nextSweep = new AtomicLong();
+	
+	/**
+	 * How long (in milliseconds) the metadata of the upstream is served without asking it again, unlike artifacts the metadata changes whenever a version is added
+	 */
+	private long metaDataTtl = TimeUnit.MINUTES.toMillis(1);
+	
+	/**
+	 * The metadata per coordinate, the ones that the upstream does not have are cached without content
+	 * They are swept like the misses
+	 */
+	private Map<String, CachedMetaData> metaData = new ConcurrentHashMap<String, CachedMetaData>();
+	private int maximumMetaData = 10000;
+	private AtomicLong nextMetaDataSweep = new AtomicLong();
+	
+	/**
+	 * The lookups and downloads that are currently in flight per coordinate
+	 */
+	private Map<String, FutureTask<Artifact>> lookups = new ConcurrentHashMap<String, FutureTask<Artifact>>();
+	private Map<String, FutureTask<CachedMetaData>> metaDataLookups = new ConcurrentHashMap<String, FutureTask<CachedMetaData>>();
+	private Map<String, CompletableFuture<Artifact>> downloads = new ConcurrentHashMap<String, CompletableFuture<Artifact>>();
+	
+	/**
+	 * Writes the downloads to the local repository
+	 */
+	private ExecutorService executor;
+	
+	public ProxyRepository(Repository upstream, WritableRepository local) {
+		this.upstream = upstream;
+		this.local = local;
+	}
+	
+	@Override
+	public SortedSet<String> getGroups() throws IOException {
+		SortedSet<String> groups = new TreeSet<String>(local.getGroups());
+		groups.addAll(upstream.getGroups());
+		return groups;
+	}
+
+	@Override
+	public SortedSet<String> getArtifacts(String groupId) throws IOException {
+		SortedSet<String> artifacts = new TreeSet<String>(local.getArtifacts(groupId));
+		artifacts.addAll(upstream.getArtifacts(groupId));
+		return artifacts;
+	}
+
+	/**
+	 * The versions that are known upstream, augmented with the ones that only exist locally
+	 */
+	@Override
+	public SortedSet<String> getVersions(String groupId, String artifactId) throws IOException {
+		SortedSet<String> upstreamVersions = upstream.getVersions(groupId, artifactId);
+		SortedSet<String> localVersions = local.getVersions(groupId, artifactId);
+		if (localVersions.isEmpty() || upstreamVersions.containsAll(localVersions)) {
+			return upstreamVersions;
+		}
+		// keep the ordering of the upstream, it knows the maven version rules
+		SortedSet<String> versions = new TreeSet<String>(upstreamVersions.comparator());
+		versions.addAll(upstreamVersions);
+		versions.addAll(localVersions);
+		return versions;
+	}
+
+	@Override
+	public Artifact getArtifact(final String groupId, final String artifactId, final String version, final boolean isTest) throws IOException {
+		Artifact artifact = local.getArtifact(groupId, artifactId, version, isTest);
+		if (artifact != null) {
+			return artifact;
+		}
+		final String key = getKey(groupId, artifactId, version, isTest);
+		Long expires = misses.get(key);
+		if (expires != null) {
+			if (expires > System.currentTimeMillis()) {
+				return null;
+			}
+			misses.remove(key, expires);
+		}
+		FutureTask<Artifact> lookup = new FutureTask<Artifact>(new Callable<Artifact>() {
+			@Override
+			public Artifact call() throws IOException {
+				Artifact artifact = upstream.getArtifact(groupId, artifactId, version, isTest);
+				if (artifact == null) {
+					miss(key);
+					return null;
+				}
+				return new ProxiedArtifact(ProxyRepository.this, key, artifact);
+			}
+		});
+		FutureTask<Artifact> existing = lookups.putIfAbsent(key, lookup);
+		if (existing == null) {
+			try {
+				lookup.run();
+			}
+			finally {
+				lookups.remove(key, lookup);
+			}
+			existing = lookup;
+		}
+		try {
+			return existing.get();
+		}
+		catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while waiting for the upstream lookup of " + key);
+		}
+		catch (ExecutionException e) {
+			throw toIOException(e);
+		}
+	}
+	
+	private void miss(String key) {
+		long now = System.currentTimeMillis();
+		if (hasRoom(misses, maximumMisses, nextSweep, now)) {
+			misses.put(key, now + negativeTtl);
+		}
+	}
+	
+	/**
+	 * Whether there is room for another entry, if not the expired ones are swept first
+	 */
+	private boolean hasRoom(Map<String, ?> entries, int maximum, AtomicLong nextSweep, long now) {
+		if (entries.size() >= maximum) {
+			long sweep = nextSweep.get();
+			// only one thread sweeps and only once per interval
+			if (now >= sweep && nextSweep.compareAndSet(sweep, now + sweepInterval)) {
+				Iterator<?> iterator = entries.values().iterator();
+				while (iterator.hasNext()) {
+					Object entry = iterator.next();
+					if ((entry instanceof CachedMetaData ? ((CachedMetaData) entry).expires : (Long) entry) <= now) {
+						iterator.remove();
+					}
+				}
+			}
+			return entries.size() < maximum;
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the content of a proxied artifact
+	 * If the artifact is already stored locally it is read from there, if no one is downloading it yet the caller starts the download
+	 */
+	InputStream getContent(ProxiedArtifact artifact) throws IOException {
+		Artifact stored = artifact.getStored();
+		if (stored == null) {
+			// another client may have downloaded it since we looked it up
+			Artifact upstreamArtifact = artifact.getUpstream();
+			stored = local.getArtifact(upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId(), upstreamArtifact.getVersion(), upstreamArtifact.isTest());
+		}
+		if (stored != null) {
+			artifact.setStored(stored);
+			return stored.getContent();
+		}
+		CompletableFuture<Artifact> download = new CompletableFuture<Artifact>();
+		CompletableFuture<Artifact> existing = downloads.putIfAbsent(artifact.getKey(), download);
+		if (existing == null) {
+			return download(artifact, download);
+		}
+		try {
+			stored = existing.get(downloadTimeout, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while waiting for the download of " + artifact.getKey());
+		}
+		catch (ExecutionException e) {
+			// the download failed, we try it ourselves below
+		}
+		catch (TimeoutException e) {
+			// the client that is downloading is too slow, we don't want to depend on it
+		}
+		return stored == null ? artifact.getUpstream().getContent() : stored.getContent();
+	}
+	
+	/**
+	 * Streams the upstream content to the caller while a separate thread writes it to the local repository
+	 */
+	private InputStream download(final ProxiedArtifact artifact, CompletableFuture<Artifact> download) throws IOException {
+		final Artifact upstreamArtifact = artifact.getUpstream();
+		InputStream content;
+		try {
+			content = upstreamArtifact.getContent();
+		}
+		catch (IOException | RuntimeException e) {
+			finish(artifact, download, null, e);
+			throw e;
+		}
+		final Pipe pipe = new Pipe(pipeSize);
+		Future<Artifact> writer = getExecutor().submit(new Callable<Artifact>() {
+			@Override
+			public Artifact call() throws IOException {
+				try {
+					return local.create(upstreamArtifact.getGroupId(), upstreamArtifact.getArtifactId(), upstreamArtifact.getVersion(), upstreamArtifact.getPackaging(), pipe, upstreamArtifact.isTest());
+				}
+				finally {
+					// this also unblocks the client if we stopped reading early
+					pipe.close();
+				}
+			}
+		});
+		return new TeeInputStream(this, artifact, download, content, pipe, writer);
+	}
+	
+	/**
+	 * Completes a download, whether it succeeded or not
+	 */
+	void finish(ProxiedArtifact artifact, CompletableFuture<Artifact> download, Artifact stored, Throwable error) {
+		if (stored != null) {
+			artifact.setStored(stored);
+			download.complete(stored);
+		}
+		else {
+			download.completeExceptionally(error == null ? new IOException("The download of " + artifact.getKey() + " was not completed") : error);
+		}
+		downloads.remove(artifact.getKey(), download);
+	}
+	
+	@Override
+	public InputStream getMetaData(final String groupId, final String artifactId) throws IOException {
+		byte [] metaData = getMetaData(groupId + ":" + artifactId, new Callable<InputStream>() {
+			@Override
+			public InputStream call() throws IOException {
+				return upstream.getMetaData(groupId, artifactId);
+			}
+		});
+		return metaData == null ? local.getMetaData(groupId, artifactId) : new ByteArrayInputStream(metaData);
+	}
+
+	@Override
+	public InputStream getMetaData(Artifact artifact) throws IOException {
+		if (artifact instanceof ProxiedArtifact) {
+			final ProxiedArtifact proxied = (ProxiedArtifact) artifact;
+			if (proxied.getStored() != null) {
+				return local.getMetaData(proxied.getStored());
+			}
+			byte [] metaData = getMetaData(proxied.getKey(), new Callable<InputStream>() {
+				@Override
+				public InputStream call() throws IOException {
+					return upstream.getMetaData(proxied.getUpstream());
+				}
+			});
+			return metaData == null ? null : new ByteArrayInputStream(metaData);
+		}
+		return local.getMetaData(artifact);
+	}
+	
+	/**
+	 * Returns the cached upstream metadata for the key, if it has expired only one of the concurrent callers asks the upstream
+	 */
+	private byte [] getMetaData(final String key, final Callable<InputStream> request) throws IOException {
+		CachedMetaData cached = metaData.get(key);
+		if (cached != null && cached.expires > System.currentTimeMillis()) {
+			return cached.content;
+		}
+		FutureTask<CachedMetaData> lookup = new FutureTask<CachedMetaData>(new Callable<CachedMetaData>() {
+			@Override
+			public CachedMetaData call() throws Exception {
+				byte [] content = RepositoryUtils.toBytes(request.call());
+				long now = System.currentTimeMillis();
+				CachedMetaData cached = new CachedMetaData(content, now + (content == null ? negativeTtl : metaDataTtl));
+				if (hasRoom(metaData, maximumMetaData, nextMetaDataSweep, now)) {
+					metaData.put(key, cached);
+				}
+				return cached;
+			}
+		});
+		FutureTask<CachedMetaData> existing = metaDataLookups.putIfAbsent(key, lookup);
+		if (existing == null) {
+			try {
+				lookup.run();
+			}
+			finally {
+				metaDataLookups.remove(key, lookup);
+			}
+			existing = lookup;
+		}
+		try {
+			return existing.get().content;
+		}
+		catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while waiting for the upstream metadata of " + key);
+		}
+		catch (ExecutionException e) {
+			throw toIOException(e);
+		}
+	}
+	
+	private static class CachedMetaData {
+		private byte [] content;
+		private long expires;
+		
+		private CachedMetaData(byte [] content, long expires) {
+			this.content = content;
+			this.expires = expires;
+		}
+	}
+
+	@Override
+	public void scan() throws IOException {
+		local.scan();
+	}
+
+	@Override
+	public Artifact create(String groupId, String artifactId, String version, String packaging, InputStream input, boolean isTest) throws IOException {
+		Artifact artifact = local.create(groupId, artifactId, version, packaging, input, isTest);
+		misses.remove(getKey(groupId, artifactId, version, isTest));
+		return artifact;
+	}
+	
+	private static String getKey(String groupId, String artifactId, String version, boolean isTest) {
+		return groupId + ":" + artifactId + ":" + version + (isTest ? ":tests" : "");
+	}
+	
+	static IOException toIOException(ExecutionException e) {
+		if (e.getCause() instanceof IOException) {
+			return (IOException) e.getCause();
+		}
+		else if (e.getCause() instanceof RuntimeException) {
+			throw (RuntimeException) e.getCause();
+		}
+		else if (e.getCause() instanceof Error) {
+			throw (Error) e.getCause();
+		}
+		return new IOException(e.getCause());
+	}
+	
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "maven-repository-proxy");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	public Repository getUpstream() {
+		return upstream;
+	}
+	public WritableRepository getLocal() {
+		return local;
+	}
+	public long getMetaDataTtl() {
+		return metaDataTtl;
+	}
+	public void setMetaDataTtl(long metaDataTtl) {
+		this.metaDataTtl = metaDataTtl;
+	}
+	public int getMaximumMetaData() {
+		return maximumMetaData;
+	}
+	public void setMaximumMetaData(int maximumMetaData) {
+		this.maximumMetaData = maximumMetaData;
+	}
+	public long getNegativeTtl() {
+		return negativeTtl;
+	}
+	public void setNegativeTtl(long negativeTtl) {
+		this.negativeTtl = negativeTtl;
+	}
+	public int getMaximumMisses() {
+		return maximumMisses;
+	}
+	public void setMaximumMisses(int maximumMisses) {
+		this.maximumMisses = maximumMisses;
+	}
+	public long getSweepInterval() {
+		return sweepInterval;
+	}
+	public void setSweepInterval(long sweepInterval) {
+		this.sweepInterval = sweepInterval;
+	}
+	public long getDownloadTimeout() {
+		return downloadTimeout;
+	}
+	public void setDownloadTimeout(long downloadTimeout) {
+		this.downloadTimeout = downloadTimeout;
+	}
+	public int getPipeSize() {
+		return pipeSize;
+	}
+	public void setPipeSize(int pipeSize) {
+		this.pipeSize = pipeSize;
+	}
+	public synchronized void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.maven.proxy;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import be.nabu.libs.maven.api.Artifact;
+
+/**
+ * Passes everything the client reads from the upstream to the thread that writes the local copy
+ * The local copy is only published if the client read the content to the end, if the client stops early or the upstream fails, the write is aborted
+ * A failure to write the local copy never affects the client, it simply keeps reading from the upstream
+ */
+class TeeInputStream extends FilterInputStream {
+
+	private ProxyRepository repository;
+	private ProxiedArtifact artifact;
+	private CompletableFuture<Artifact> download;
+	private Pipe pipe;
+	private Future<Artifact> writer;
+	private boolean writing = true, finished;
+	
+	TeeInputStream(ProxyRepository repository, ProxiedArtifact artifact, CompletableFuture<Artifact> download, InputStream content, Pipe pipe, Future<Artifact> writer) {
+		super(content);
+		this.repository = repository;
+		this.artifact = artifact;
+		this.download = download;
+		this.pipe = pipe;
+		this.writer = writer;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		byte [] single = new byte[1];
+		int read = read(single, 0, 1);
+		return read <= 0 ? -1 : single[0] & 0xff;
+	}
+	
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		int read;
+		try {
+			read = super.read(bytes, offset, length);
+		}
+		catch (IOException | RuntimeException e) {
+			abort(e);
+			throw e;
+		}
+		if (read < 0) {
+			complete();
+		}
+		else if (read > 0 && writing) {
+			try {
+				pipe.write(bytes, offset, read);
+			}
+			catch (IOException e) {
+				// the writer has stopped, the client can still be served
+				writing = false;
+			}
+		}
+		return read;
+	}
+	
+	@Override
+	public long skip(long amount) throws IOException {
+		// everything has to pass through the sink
+		byte [] buffer = new byte[(int) Math.min(amount, 8192)];
+		long skipped = 0;
+		while (skipped < amount) {
+			int read = read(buffer, 0, (int) Math.min(buffer.length, amount - skipped));
+			if (read < 0) {
+				break;
+			}
+			skipped += read;
+		}
+		return skipped;
+	}
+	
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			super.close();
+		}
+		finally {
+			abort(null);
+		}
+	}
+	
+	/**
+	 * Signals the end of the content to the writer and waits for the local copy to be published
+	 */
+	private void complete() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		Artifact stored = null;
+		Throwable error = null;
+		try {
+			pipe.finish();
+			stored = writer.get();
+		}
+		catch (InterruptedException e) {
+			error = new InterruptedIOException("Interrupted while storing " + artifact.getKey());
+		}
+		catch (ExecutionException e) {
+			error = e.getCause();
+		}
+		repository.finish(artifact, download, stored, error);
+	}
+	
+	/**
+	 * Failing the pipe makes the writer fail so the partial copy is discarded
+	 */
+	private void abort(Throwable error) {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		pipe.fail(new IOException("The download of " + artifact.getKey() + " was aborted", error));
+		repository.finish(artifact, download, null, error);
+	}
+}
@@ -0,0 +1,77 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ArtifactFileNameTest {
+
+	@Test
+	public void testCoordinates() {
+		ArtifactFileName name = ArtifactFileName.parse("be.nabu-utils-1.0.jar");
+		assertEquals("be.nabu", name.getGroupId());
+		assertEquals("utils", name.getArtifactId());
+		assertEquals("1.0", name.getVersion());
+		assertEquals("jar", name.getExtension());
+		assertFalse(name.isTest());
+		assertNull(name.getClassifier("utils", "1.0"));
+	}
+
+	@Test
+	public void testEscapedDashes() {
+		ArtifactFileName name = ArtifactFileName.parse("my__group-lib-2.0__beta.jar");
+		assertEquals("my-group", name.getGroupId());
+		assertEquals("2.0-beta", name.getVersion());
+	}
+
+	@Test
+	public void testDefaults() {
+		ArtifactFileName name = ArtifactFileName.parse("utils.jar");
+		assertEquals("com.example", name.getGroupId());
+		assertEquals("utils", name.getArtifactId());
+		assertEquals("1.0", name.getVersion());
+		assertEquals("jar", name.getExtension());
+	}
+
+	@Test
+	public void testClassifier() {
+		ArtifactFileName name = ArtifactFileName.parse("utils-1.0-sources.jar");
+		assertFalse(name.isTest());
+		assertEquals("sources", name.getClassifier("utils", "1.0"));
+		assertNull(name.getClassifier("utils", "1.1"));
+		assertNull(name.getClassifier("other", "1.0"));
+		assertNull(ArtifactFileName.parse("utils-1.0.jar").getClassifier("utils", "1.0"));
+	}
+
+	@Test
+	public void testTestJar() {
+		ArtifactFileName name = ArtifactFileName.parse("utils-1.0-tests.jar");
+		assertTrue(name.isTest());
+		assertEquals("jar", name.getExtension());
+		// test artifacts always have the classifier "tests", whatever the coordinates
+		assertEquals("tests", name.getClassifier("utils", "1.0"));
+		assertEquals("tests", name.getClassifier(null, null));
+		assertFalse(ArtifactFileName.parse("tests.jar").isTest());
+		assertFalse(ArtifactFileName.parse("utils-1.0-tests").isTest());
+	}
+}
@@ -0,0 +1,125 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import be.nabu.libs.maven.BaseRepositoryTest.TestArtifact;
+import be.nabu.libs.maven.api.Artifact;
+
+public class ArtifactIndexTest {
+
+	@Test
+	public void testVersionOrder() {
+		ArtifactIndex index = add(new ArtifactIndex(), new TestArtifact("g", "a", "1.10"), new TestArtifact("g", "a", "1.9"), new TestArtifact("g", "a", "1.10-SNAPSHOT"), new TestArtifact("g", "a", "1.0"), new TestArtifact("g", "a", "1.0.0"));
+		assertEquals(Arrays.asList("1.0", "1.0.0", "1.9", "1.10-SNAPSHOT", "1.10"), new ArrayList<String>(index.getVersions("g", "a")));
+		assertEquals("1.10", index.getLatest("g", "a").getVersion());
+		index = remove(index, index.getArtifact("g", "a", "1.10", false));
+		assertEquals("1.10-SNAPSHOT", index.getLatest("g", "a").getVersion());
+		assertEquals("1.9", index.getRelease("g", "a").getVersion());
+	}
+
+	@Test
+	public void testSnapshotsDoNotChange() {
+		TestArtifact first = new TestArtifact("g", "a", "1.0");
+		ArtifactIndex original = add(new ArtifactIndex(), first, new TestArtifact("h", "b", "1.0"));
+		ArtifactIndex updated = add(original, new TestArtifact("g", "a", "2.0"), new TestArtifact("i", "c", "1.0"));
+		updated = remove(updated, first);
+		assertEquals(Arrays.asList("g", "h"), new ArrayList<String>(original.getGroups()));
+		assertEquals(Arrays.asList("1.0"), new ArrayList<String>(original.getVersions("g", "a")));
+		assertSame(first, original.getArtifact("g", "a", "1.0", false));
+		assertEquals(Arrays.asList("g", "h", "i"), new ArrayList<String>(updated.getGroups()));
+		assertEquals(Arrays.asList("2.0"), new ArrayList<String>(updated.getVersions("g", "a")));
+		assertNull(updated.getArtifact("g", "a", "1.0", false));
+	}
+
+	@Test
+	public void testReplaceAndDuplicates() {
+		TestArtifact first = new TestArtifact("g", "a", "1.0");
+		TestArtifact second = new TestArtifact("g", "a", "1.0");
+		TestArtifact third = new TestArtifact("g", "a", "1.0");
+		TestArtifact test = new TestArtifact("g", "a", "1.0", true);
+		ArtifactIndex index = add(new ArtifactIndex(), first, second, test);
+		// the first one wins, the other waits behind it
+		assertSame(first, index.getArtifact("g", "a", "1.0", false));
+		assertSame(test, index.getArtifact("g", "a", "1.0", true));
+		// a replace takes the place of the removed one, ahead of the one that was waiting
+		index = index.update(Arrays.asList(third), Arrays.asList(first));
+		assertSame(third, index.getArtifact("g", "a", "1.0", false));
+		index = remove(index, third);
+		assertSame(second, index.getArtifact("g", "a", "1.0", false));
+		index = remove(index, second, test);
+		assertTrue(index.getGroups().isEmpty());
+		assertTrue(index.getVersions("g", "a").isEmpty());
+	}
+
+	@Test
+	public void testRemovedVersionsAreForgotten() {
+		TestArtifact artifact = new TestArtifact("g", "a", "1.0");
+		ArtifactIndex index = add(new ArtifactIndex(), artifact, new TestArtifact("g", "a", "2.0"));
+		index = remove(index, artifact);
+		assertNull(index.getArtifact("g", "a", "1.0", false));
+		// a version that is no longer indexed can still be compared with the others
+		assertEquals(Arrays.asList("2.0", "10.0"), new ArrayList<String>(add(index, new TestArtifact("g", "a", "10.0")).getVersions("g", "a")));
+	}
+
+	@Test
+	public void testManyGroups() {
+		Random random = new Random(1);
+		Map<String, TestArtifact> expected = new HashMap<String, TestArtifact>();
+		ArtifactIndex index = new ArtifactIndex();
+		for (int i = 0; i < 5000; i++) {
+			String groupId = "group" + random.nextInt(500);
+			TestArtifact current = expected.get(groupId);
+			if (current != null && random.nextBoolean()) {
+				index = remove(index, current);
+				expected.remove(groupId);
+			}
+			else if (current == null) {
+				current = new TestArtifact(groupId, "a", "1.0");
+				index = add(index, current);
+				expected.put(groupId, current);
+			}
+		}
+		assertEquals(new ArrayList<String>(new TreeSet<String>(expected.keySet())), new ArrayList<String>(index.getGroups()));
+		for (Map.Entry<String, TestArtifact> entry : expected.entrySet()) {
+			assertSame(entry.getValue(), index.getLatest(entry.getKey(), "a"));
+		}
+	}
+
+	private static ArtifactIndex add(ArtifactIndex index, Artifact...artifacts) {
+		return index.update(Arrays.asList(artifacts), Collections.<Artifact>emptyList());
+	}
+
+	private static ArtifactIndex remove(ArtifactIndex index, Artifact...artifacts) {
+		return index.update(Collections.<Artifact>emptyList(), Arrays.asList(artifacts));
+	}
+}
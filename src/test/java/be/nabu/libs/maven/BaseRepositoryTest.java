@@ -0,0 +1,152 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import be.nabu.libs.maven.api.Artifact;
+
+public class BaseRepositoryTest {
+
+	/**
+	 * A subclass that only implements getArtifacts(), like they did before the index existed
+	 */
+	@Test
+	public void testUnregistered() throws IOException {
+		TestRepository repository = new TestRepository();
+		repository.getDomains().add("be.nabu");
+		Artifact first = new TestArtifact("be.nabu", "x", "1.0"), second = new TestArtifact("be.nabu", "x", "1.0");
+		repository.artifacts.addAll(Arrays.asList(first, second, new TestArtifact("be.nabu", "x", "1.10"), new TestArtifact("org.other", "y", "1.0")));
+		assertEquals("[be.nabu, org.other]", repository.getGroups().toString());
+		assertEquals("[x]", repository.getArtifacts("be.nabu").toString());
+		assertEquals("[1.0, 1.10]", repository.getVersions("be.nabu", "x").toString());
+		assertSame(first, repository.getArtifact("be.nabu", "x", "1.0", false));
+		assertEquals("[be.nabu:x:1.10]", repository.getInternalArtifacts().toString());
+		assertNotNull(repository.getMetaData("be.nabu", "x"));
+		// changes are picked up immediately
+		repository.artifacts.add(new TestArtifact("be.nabu", "x", "2.0"));
+		assertEquals("[1.0, 1.10, 2.0]", repository.getVersions("be.nabu", "x").toString());
+		assertEquals("[be.nabu:x:2.0]", repository.getInternalArtifacts().toString());
+		assertEquals(true, TestFiles.toString(repository.getMetaData("be.nabu", "x")).contains("<latest>2.0</latest>"));
+	}
+
+	/**
+	 * If several artifacts have the same coordinates, the first one that was registered wins
+	 */
+	@Test
+	public void testDuplicates() throws IOException {
+		TestRepository repository = new TestRepository();
+		Artifact first = new TestArtifact("be.nabu", "x", "1.0"), second = new TestArtifact("be.nabu", "x", "1.0"), third = new TestArtifact("be.nabu", "x", "1.0");
+		repository.register(first);
+		repository.register(second);
+		repository.register(third);
+		assertSame(first, repository.getArtifact("be.nabu", "x", "1.0", false));
+		// a replacement keeps the place of the artifact it replaces
+		Artifact replacement = new TestArtifact("be.nabu", "x", "1.0");
+		repository.update(Arrays.asList(replacement), Arrays.asList(first));
+		assertSame(replacement, repository.getArtifact("be.nabu", "x", "1.0", false));
+		// once it is removed, the others take over in the order they were registered
+		repository.unregister(replacement);
+		assertSame(second, repository.getArtifact("be.nabu", "x", "1.0", false));
+		repository.unregister(third);
+		assertSame(second, repository.getArtifact("be.nabu", "x", "1.0", false));
+		repository.unregister(second);
+		assertNull(repository.getArtifact("be.nabu", "x", "1.0", false));
+		assertEquals("[]", repository.getVersions("be.nabu", "x").toString());
+	}
+
+	private static class TestRepository extends BaseRepository {
+		private List<Artifact> artifacts = new ArrayList<Artifact>();
+		@Override
+		protected Collection<? extends Artifact> getArtifacts() {
+			return artifacts;
+		}
+		@Override
+		public void scan() {
+			// nothing to scan
+		}
+		@Override
+		protected void update(Collection<? extends Artifact> added, Collection<? extends Artifact> removed) {
+			super.update(added, removed);
+		}
+	}
+
+	static class TestArtifact implements Artifact {
+		private String groupId, artifactId, version;
+		private boolean test;
+
+		TestArtifact(String groupId, String artifactId, String version) {
+			this(groupId, artifactId, version, false);
+		}
+		TestArtifact(String groupId, String artifactId, String version, boolean test) {
+			this.groupId = groupId;
+			this.artifactId = artifactId;
+			this.version = version;
+			this.test = test;
+		}
+		@Override
+		public InputStream getPom() {
+			return null;
+		}
+		@Override
+		public String getPackaging() {
+			return "jar";
+		}
+		@Override
+		public String getGroupId() {
+			return groupId;
+		}
+		@Override
+		public String getVersion() {
+			return version;
+		}
+		@Override
+		public String getArtifactId() {
+			return artifactId;
+		}
+		@Override
+		public Date getLastModified() {
+			return new Date(0);
+		}
+		@Override
+		public InputStream getContent() {
+			return null;
+		}
+		@Override
+		public boolean isTest() {
+			return test;
+		}
+		@Override
+		public String toString() {
+			return groupId + ":" + artifactId + ":" + version;
+		}
+	}
+}
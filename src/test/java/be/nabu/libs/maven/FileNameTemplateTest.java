@@ -0,0 +1,115 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import be.nabu.libs.maven.FileNameTemplate.Coordinates;
+
+public class FileNameTemplateTest {
+
+	@Test
+	public void testGroupId() {
+		assertRoundTrip("$groupId/$artifactId-$version.$extension", "be.nabu.libs/my-lib-1.0-SNAPSHOT.jar");
+	}
+
+	@Test
+	public void testExploded() {
+		assertRoundTrip("$exploded/$artifactId/$version/$artifactId-$version.$extension", "be/nabu/libs/my-lib/1.0-SNAPSHOT/my-lib-1.0-SNAPSHOT.jar");
+	}
+
+	@Test
+	public void testDomainAndType() {
+		assertRoundTrip("$domain/$type/$groupId/$artifactId-$version.$extension", "internal/snapshots/be.nabu.libs/my-lib-1.0-SNAPSHOT.jar");
+	}
+
+	@Test
+	public void testUnknownVariable() {
+		assertRoundTrip("$other/$groupId-$artifactId-$version.$extension", "$other/be.nabu.libs-my-lib-1.0-SNAPSHOT.jar");
+	}
+
+	@Test
+	public void testNotReversible() {
+		FileNameTemplate template = new FileNameTemplate("$artifactId-$version.$extension");
+		assertFalse(template.isReversible());
+		assertEquals("my-lib-1.0.jar", template.format("be.nabu.libs", "my-lib", "1.0", "jar", false));
+		assertNull(template.parse("my-lib-1.0.jar"));
+	}
+
+	@Test
+	public void testNoMatch() {
+		FileNameTemplate template = new FileNameTemplate("$groupId/$artifactId-$version.$extension");
+		assertNull(template.parse("be.nabu.libs/my-lib-1.0.jar/other"));
+		assertNull(template.parse("my-lib-1.0.jar"));
+	}
+
+	@Test
+	public void testVersionSplit() {
+		FileNameTemplate template = new FileNameTemplate("$groupId/$artifactId-$version.$extension");
+		// the first split where the version starts with a digit
+		Coordinates coordinates = template.parse("be.nabu.libs/my-lib-beta-2-1.0.jar");
+		assertEquals("my-lib-beta", coordinates.getArtifactId());
+		assertEquals("2-1.0", coordinates.getVersion());
+		// if there is none, the first split
+		coordinates = template.parse("be.nabu.libs/my-lib-beta.jar");
+		assertEquals("my", coordinates.getArtifactId());
+		assertEquals("lib-beta", coordinates.getVersion());
+	}
+
+	@Test
+	public void testGroupIdAndExploded() {
+		FileNameTemplate template = new FileNameTemplate("$exploded/$groupId-$artifactId-$version.$extension");
+		assertEquals("be.nabu", template.parse("be/nabu/be.nabu-my-lib-1.0.jar").getGroupId());
+		assertNull(template.parse("be/nabu/be.other-my-lib-1.0.jar"));
+	}
+
+	@Test
+	public void testLongPath() {
+		FileNameTemplate template = new FileNameTemplate("$groupId-$artifactId-$version-$artifactId-$version.$extension");
+		StringBuilder path = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			path.append("a-");
+		}
+		long started = System.currentTimeMillis();
+		assertNull(template.parse(path + "x.jar"));
+		assertTrue(System.currentTimeMillis() - started < 5000);
+	}
+
+	private static void assertRoundTrip(String format, String expected) {
+		FileNameTemplate template = new FileNameTemplate(format);
+		assertTrue(template.isReversible());
+		String path = template.format("be.nabu.libs", "my-lib", "1.0-SNAPSHOT", "jar", true);
+		assertEquals(expected, path);
+		assertCoordinates(template.parse(path), false);
+		// test artifacts are stored with a "-tests" suffix right before the extension
+		assertCoordinates(template.parse(path.substring(0, path.lastIndexOf('.')) + "-tests.jar"), true);
+	}
+
+	private static void assertCoordinates(Coordinates coordinates, boolean isTest) {
+		assertEquals("be.nabu.libs", coordinates.getGroupId());
+		assertEquals("my-lib", coordinates.getArtifactId());
+		assertEquals("1.0-SNAPSHOT", coordinates.getVersion());
+		assertEquals("jar", coordinates.getExtension());
+		assertEquals(isTest, coordinates.isTest());
+	}
+}
@@ -0,0 +1,99 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MavenVersionTest {
+
+	@Test
+	public void testNumericSegments() {
+		assertBefore("1.9", "1.10");
+		assertBefore("1.10", "2.0-SNAPSHOT");
+		assertBefore("1.0-1", "1.0.1");
+	}
+
+	@Test
+	public void testTrailingZeroes() {
+		assertSame("1", "1.0");
+		assertSame("1", "1.0.0");
+		assertSame("1.0", "1-ga");
+		assertSame("1.0", "1.0-final");
+	}
+
+	@Test
+	public void testQualifiers() {
+		List<String> ordered = Arrays.asList("1.0-alpha", "1.0-alpha-1", "1.0-beta-1", "1.0-milestone-1", "1.0-rc1", "1.0-SNAPSHOT", "1.0", "1.0-sp1", "1.0-bar", "1.0-foo", "1.0.1");
+		List<MavenVersion> versions = new ArrayList<MavenVersion>();
+		for (String version : ordered) {
+			versions.add(MavenVersion.parse(version));
+		}
+		Collections.shuffle(versions);
+		Collections.sort(versions);
+		assertEquals(ordered.toString(), versions.toString());
+	}
+
+	@Test
+	public void testQualifierAliases() {
+		assertSame("1.0-rc1", "1.0-cr1");
+		assertSame("1.0-a1", "1.0-alpha-1");
+		assertSame("1.0-b1", "1.0-beta-1");
+		assertSame("1.0-m1", "1.0-milestone-1");
+		assertSame("1.0-RC1", "1.0-rc1");
+	}
+
+	@Test
+	public void testSeparators() {
+		assertSame("1rc1", "1-rc-1");
+		assertSame("1.0RC1", "1.0-rc-1");
+	}
+
+	@Test
+	public void testSnapshot() {
+		assertTrue(MavenVersion.parse("1.0-SNAPSHOT").isSnapshot());
+		assertFalse(MavenVersion.parse("1.0").isSnapshot());
+		assertBefore("1.0-rc1", "1.0-SNAPSHOT");
+		assertBefore("1.0-SNAPSHOT", "1.0");
+		assertBefore("1.0", "1.1-SNAPSHOT");
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals("1.0-RC1", MavenVersion.parse("1.0-RC1").toString());
+	}
+
+	private static void assertBefore(String first, String second) {
+		assertTrue(first + " < " + second, MavenVersion.parse(first).compareTo(MavenVersion.parse(second)) < 0);
+		assertTrue(second + " > " + first, MavenVersion.parse(second).compareTo(MavenVersion.parse(first)) > 0);
+	}
+
+	private static void assertSame(String first, String second) {
+		assertEquals(first + " = " + second, 0, MavenVersion.parse(first).compareTo(MavenVersion.parse(second)));
+		assertEquals(MavenVersion.parse(first), MavenVersion.parse(second));
+		assertEquals(MavenVersion.parse(first).hashCode(), MavenVersion.parse(second).hashCode());
+	}
+}
@@ -0,0 +1,81 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.Test;
+
+public class RepositoryUtilsTest {
+
+	@Test
+	public void testPom() throws IOException {
+		Properties properties = parse("<project><parent><groupId>parent</groupId><version>2.0</version></parent><groupId>be.nabu</groupId><artifactId>utils</artifactId><version>1.0</version><packaging>pom</packaging></project>");
+		assertEquals("be.nabu", properties.getProperty("groupId"));
+		assertEquals("utils", properties.getProperty("artifactId"));
+		assertEquals("1.0", properties.getProperty("version"));
+		assertEquals("pom", properties.getProperty("packaging"));
+	}
+
+	@Test
+	public void testParent() throws IOException {
+		Properties properties = parse("<project><parent><groupId>be.nabu</groupId><artifactId>core</artifactId><version>2.0</version></parent><artifactId>utils</artifactId><dependencies><dependency><groupId>other</groupId><version>3.0</version></dependency></dependencies></project>");
+		assertEquals("be.nabu", properties.getProperty("groupId"));
+		assertEquals("utils", properties.getProperty("artifactId"));
+		assertEquals("2.0", properties.getProperty("version"));
+		assertNull(properties.getProperty("packaging"));
+	}
+
+	@Test
+	public void testNotXML() throws IOException {
+		assertTrue(parse("hello world").isEmpty());
+		assertTrue(parse("").isEmpty());
+	}
+
+	@Test
+	public void testTruncated() throws IOException {
+		// what was read before the error is kept, including what is inherited from the parent
+		Properties properties = parse("<project><parent><groupId>be.nabu</groupId><artifactId>core</artifactId><version>2.0</version></parent><artifactId>utils</artifactId><dependencies><dependency><groupId>oth");
+		assertEquals("be.nabu", properties.getProperty("groupId"));
+		assertEquals("utils", properties.getProperty("artifactId"));
+		assertEquals("2.0", properties.getProperty("version"));
+	}
+
+	@Test
+	public void testClosed() throws IOException {
+		final boolean [] closed = new boolean[1];
+		RepositoryUtils.getPropertiesFromXML(new ByteArrayInputStream("<project><groupId>".getBytes("UTF-8")) {
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+				super.close();
+			}
+		});
+		assertTrue(closed[0]);
+	}
+
+	private static Properties parse(String pom) throws IOException {
+		return RepositoryUtils.getPropertiesFromXML(new ByteArrayInputStream(pom.getBytes("UTF-8")));
+	}
+}
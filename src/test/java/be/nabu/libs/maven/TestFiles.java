@@ -0,0 +1,73 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Helpers for the tests that need files and artifacts on disk
+ */
+public class TestFiles {
+
+	public static File createDirectory() throws IOException {
+		return Files.createTempDirectory("repository").toFile();
+	}
+
+	/**
+	 * Symbolic links are deleted, not followed
+	 */
+	public static void delete(File file) {
+		File [] children = Files.isSymbolicLink(file.toPath()) ? null : file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * A jar with the pom.properties for the coordinates, the content makes jars with the same coordinates different
+	 */
+	public static byte [] jar(String groupId, String artifactId, String version, String content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JarOutputStream output = new JarOutputStream(bytes);
+		try {
+			output.putNextEntry(new JarEntry("META-INF/maven/" + groupId + "/" + artifactId + "/pom.properties"));
+			output.write(("groupId=" + groupId + "\nartifactId=" + artifactId + "\nversion=" + version + "\n").getBytes("UTF-8"));
+			output.closeEntry();
+			output.putNextEntry(new JarEntry("content.txt"));
+			output.write(content.getBytes("UTF-8"));
+			output.closeEntry();
+		}
+		finally {
+			output.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	public static String toString(InputStream input) throws IOException {
+		return new String(RepositoryUtils.toBytes(input), "UTF-8");
+	}
+}
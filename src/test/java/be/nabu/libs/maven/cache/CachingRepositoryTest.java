@@ -0,0 +1,130 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import be.nabu.libs.maven.JmxRepositoryMetrics;
+import be.nabu.libs.maven.TestFiles;
+import be.nabu.libs.maven.file.FileRepository;
+
+public class CachingRepositoryTest {
+
+	private List<File> roots = new ArrayList<File>();
+
+	@After
+	public void tearDown() {
+		for (File root : roots) {
+			TestFiles.delete(root);
+		}
+	}
+
+	@Test
+	public void testContentIsCached() throws IOException {
+		FileRepository repository = newRepository();
+		create(repository, "1.0", "original");
+		CachingRepository cached = new CachingRepository(repository, 1024 * 1024);
+		JmxRepositoryMetrics metrics = new JmxRepositoryMetrics("cachingRepositoryTest");
+		cached.setMetrics(metrics);
+		assertEquals("original", content(cached, "1.0"));
+		assertEquals(1, cached.getCache().getCount());
+		assertEquals("original", content(cached, "1.0"));
+		assertEquals(0.5, metrics.getCacheHitRatios().get("artifactCache"), 0.001);
+	}
+
+	@Test
+	public void testReplacedContent() throws IOException {
+		FileRepository repository = newRepository();
+		create(repository, "1.0", "original");
+		CachingRepository cached = new CachingRepository(repository, 1024 * 1024);
+		assertEquals("original", content(cached, "1.0"));
+		// replaced through the cache
+		create(cached, "1.0", "replaced");
+		assertEquals("replaced", content(cached, "1.0"));
+		// replaced behind the back of the cache, only the last modified tells it apart
+		create(repository, "1.0", "again");
+		File file = new File(roots.get(0), "be.nabu-x-1.0.txt");
+		file.setLastModified(file.lastModified() + 2000);
+		repository.scan();
+		assertEquals("again", content(cached, "1.0"));
+	}
+
+	@Test
+	public void testSharedCache() throws IOException {
+		FileRepository first = newRepository();
+		FileRepository second = newRepository();
+		create(first, "1.0", "first");
+		create(second, "1.0", "second");
+		ByteCache cache = new ByteCache(1024 * 1024, false);
+		CachingRepository firstCached = new CachingRepository(first, cache);
+		CachingRepository secondCached = new CachingRepository(second, cache);
+		assertEquals("first", content(firstCached, "1.0"));
+		assertEquals("second", content(secondCached, "1.0"));
+		assertEquals("first", content(firstCached, "1.0"));
+		assertEquals(2, cache.getCount());
+	}
+
+	@Test
+	public void testLargeContentIsNotCached() throws IOException {
+		FileRepository repository = newRepository();
+		char [] characters = new char[2048];
+		Arrays.fill(characters, 'a');
+		String large = new String(characters);
+		create(repository, "1.0", large);
+		create(repository, "2.0", "small");
+		CachingRepository cached = new CachingRepository(repository, 1024 * 1024);
+		cached.setMaximumEntrySize(1024);
+		assertEquals(large, content(cached, "1.0"));
+		assertEquals(0, cached.getCache().getCount());
+		assertEquals("small", content(cached, "2.0"));
+		assertEquals(1, cached.getCache().getCount());
+		assertNull(cached.getArtifact("be.nabu", "x", "3.0", false));
+	}
+
+	private static String content(CachingRepository repository, String version) throws IOException {
+		return TestFiles.toString(repository.getArtifact("be.nabu", "x", version, false).getContent());
+	}
+
+	private static void create(FileRepository repository, String version, String content) throws IOException {
+		repository.create("be.nabu", "x", version, "txt", new ByteArrayInputStream(content.getBytes("UTF-8")), false);
+	}
+
+	private static void create(CachingRepository repository, String version, String content) throws IOException {
+		repository.create("be.nabu", "x", version, "txt", new ByteArrayInputStream(content.getBytes("UTF-8")), false);
+	}
+
+	private FileRepository newRepository() throws IOException {
+		File root = TestFiles.createDirectory();
+		roots.add(root);
+		FileRepository repository = new FileRepository(root);
+		repository.setFileNameFormat("$groupId-$artifactId-$version.$extension");
+		repository.scan();
+		return repository;
+	}
+}
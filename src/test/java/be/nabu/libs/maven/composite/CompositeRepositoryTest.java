@@ -0,0 +1,137 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.composite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.nabu.libs.maven.RepositoryUtils;
+import be.nabu.libs.maven.TestFiles;
+import be.nabu.libs.maven.file.FileRepository;
+
+public class CompositeRepositoryTest {
+
+	private List<File> roots = new ArrayList<File>();
+	private FileRepository first, second, third;
+	private CompositeRepository composite;
+
+	@Before
+	public void setUp() throws IOException {
+		first = newRepository();
+		second = newRepository();
+		third = newRepository();
+		composite = new CompositeRepository(first, second, third);
+		// the lookups in the members have to queue for the single thread
+		composite.setMaximumThreads(1);
+	}
+
+	@After
+	public void tearDown() {
+		for (File root : roots) {
+			TestFiles.delete(root);
+		}
+	}
+
+	@Test
+	public void testPriority() throws IOException {
+		create(second, "1.0", "second");
+		create(third, "1.0", "third");
+		create(third, "2.0", "third");
+		assertEquals("second", content("1.0"));
+		assertEquals("third", content("2.0"));
+		create(first, "1.0", "first");
+		assertEquals("first", content("1.0"));
+		assertNull(composite.getArtifact("be.nabu", "x", "3.0", false));
+		composite.scan();
+		assertEquals("first", content("1.0"));
+	}
+
+	@Test
+	public void testMergedVersions() throws IOException {
+		create(first, "1.9", "first");
+		create(first, "1.10-SNAPSHOT", "first");
+		create(second, "1.10", "second");
+		create(second, "1.0", "second");
+		SortedSet<String> versions = composite.getVersions("be.nabu", "x");
+		assertEquals(Arrays.asList("1.0", "1.9", "1.10-SNAPSHOT", "1.10"), new ArrayList<String>(versions));
+		// versions that none of the members have are sorted correctly too
+		assertTrue(versions.contains("1.10"));
+		assertEquals(Arrays.asList("1.10-SNAPSHOT", "1.10"), new ArrayList<String>(versions.tailSet("1.10-alpha")));
+		// reused until a member changes
+		assertSame(versions, composite.getVersions("be.nabu", "x"));
+		String metaData = RepositoryUtils.toString(composite.getMetaData("be.nabu", "x"));
+		assertTrue(metaData.contains("<release>1.10</release>"));
+		assertTrue(metaData.contains("<version>1.9</version>"));
+		create(third, "2.0", "third");
+		assertNotSame(versions, composite.getVersions("be.nabu", "x"));
+		assertEquals("2.0", composite.getVersions("be.nabu", "x").last());
+		assertTrue(RepositoryUtils.toString(composite.getMetaData("be.nabu", "x")).contains("<release>2.0</release>"));
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		composite.setMaximumMerged(2);
+		for (int i = 0; i < 5; i++) {
+			first.create("be.nabu", "x" + i, "1.0", "txt", new ByteArrayInputStream("first".getBytes("UTF-8")), false);
+			second.create("be.nabu", "x" + i, "2.0", "txt", new ByteArrayInputStream("second".getBytes("UTF-8")), false);
+		}
+		List<SortedSet<String>> merged = new ArrayList<SortedSet<String>>();
+		for (int i = 0; i < 5; i++) {
+			merged.add(composite.getVersions("be.nabu", "x" + i));
+			assertEquals(Arrays.asList("1.0", "2.0"), new ArrayList<String>(merged.get(i)));
+		}
+		// the most recent ones are kept, the others are merged again
+		assertSame(merged.get(4), composite.getVersions("be.nabu", "x4"));
+		assertNotSame(merged.get(0), composite.getVersions("be.nabu", "x0"));
+		assertEquals(merged.get(0), composite.getVersions("be.nabu", "x0"));
+	}
+
+	private String content(String version) throws IOException {
+		return RepositoryUtils.toString(composite.getArtifact("be.nabu", "x", version, false).getContent());
+	}
+
+	private static void create(FileRepository repository, String version, String content) throws IOException {
+		repository.create("be.nabu", "x", version, "txt", new ByteArrayInputStream(content.getBytes("UTF-8")), false);
+	}
+
+	private FileRepository newRepository() throws IOException {
+		File root = TestFiles.createDirectory();
+		roots.add(root);
+		FileRepository repository = new FileRepository(root);
+		repository.setFileNameFormat("$groupId-$artifactId-$version.$extension");
+		// the file name convention would take "SNAPSHOT" as the version
+		repository.setCoordinatesFromPath(true);
+		repository.scan();
+		return repository;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.nabu.libs.maven.JmxRepositoryMetrics;
+import be.nabu.libs.maven.RepositoryUtils;
+import be.nabu.libs.maven.RepositoryUtils.HashAlgorithm;
+import be.nabu.libs.maven.TestFiles;
+import be.nabu.libs.maven.api.Artifact;
+
+public class ArtifactCatalogTest {
+
+	private File root;
+	private FileRepository repository;
+
+	@Before
+	public void setUp() throws IOException {
+		root = TestFiles.createDirectory();
+		repository = new FileRepository(root);
+		repository.setCompact(true);
+		repository.scan();
+	}
+
+	@After
+	public void tearDown() {
+		TestFiles.delete(root);
+	}
+
+	@Test
+	public void testHashesAreCached() throws IOException {
+		JmxRepositoryMetrics metrics = new JmxRepositoryMetrics("catalog-test");
+		repository.setMetrics(metrics);
+		byte [] content = TestFiles.jar("be.nabu", "x", "1.0", "first");
+		Artifact artifact = repository.create("be.nabu", "x", "1.0", "jar", new ByteArrayInputStream(content), false);
+		assertTrue(artifact instanceof CatalogArtifact);
+		String expected = RepositoryUtils.hash(new ByteArrayInputStream(content), HashAlgorithm.SHA1);
+		assertEquals(expected, ((CatalogArtifact) artifact).getHash(HashAlgorithm.SHA1));
+		assertEquals(expected, ((CatalogArtifact) repository.getArtifact("be.nabu", "x", "1.0", false)).getHash(HashAlgorithm.SHA1));
+		assertEquals(1.0, metrics.getCacheHitRatios().get("hash"), 0.0001);
+	}
+
+	@Test
+	public void testRetiredViewKeepsItsRow() throws IOException {
+		Artifact first = repository.create("be.nabu", "x", "1.0", "jar", new ByteArrayInputStream(TestFiles.jar("be.nabu", "x", "1.0", "first")), false);
+		repository.create("be.nabu", "x", "1.0", "jar", new ByteArrayInputStream(TestFiles.jar("be.nabu", "x", "1.0", "second")), false);
+		// the row of the first artifact is reused by a different artifact
+		repository.delete(Arrays.asList(repository.getArtifact("be.nabu", "x", "1.0", false)));
+		repository.create("org.other", "y", "2.0", "jar", new ByteArrayInputStream(TestFiles.jar("org.other", "y", "2.0", "other")), false);
+		assertEquals("be.nabu", first.getGroupId());
+		assertEquals("x", first.getArtifactId());
+		assertEquals("1.0", first.getVersion());
+		assertNull(repository.getArtifact("be.nabu", "x", "1.0", false));
+		assertEquals("2.0", repository.getArtifact("org.other", "y", "2.0", false).getVersion());
+	}
+}
@@ -0,0 +1,140 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.nabu.libs.maven.RepositoryUtils;
+import be.nabu.libs.maven.RepositoryUtils.HashAlgorithm;
+import be.nabu.libs.maven.TestFiles;
+import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.file.RetentionReport.Removal;
+
+public class DeduplicationTest {
+
+	private static final long OLD = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(100);
+
+	private File root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = TestFiles.createDirectory();
+	}
+
+	@After
+	public void tearDown() {
+		TestFiles.delete(root);
+	}
+
+	@Test
+	public void testLinksShareContent() throws IOException {
+		FileRepository repository = newRepository(false);
+		create(repository, "1.0", "same");
+		create(repository, "1.1", "same");
+		assertEquals(3, ((Number) Files.getAttribute(new File(root, "be.nabu-x-1.0.txt").toPath(), "unix:nlink")).intValue());
+	}
+
+	/**
+	 * The link for the last upload has the timestamp of the first one, which is older than the artifact it replaces
+	 */
+	@Test
+	public void testReplaceWithEarlierContent() throws IOException {
+		FileRepository repository = newRepository(true);
+		create(repository, "1.0", "first");
+		File file = new File(root, "be.nabu-x-1.0.txt");
+		// this is the timestamp of the blob as well
+		file.setLastModified(OLD);
+		create(repository, "1.0", "second");
+		long started = System.currentTimeMillis();
+		Artifact artifact = create(repository, "1.0", "first");
+		assertCurrent(artifact, "first", started);
+		assertCurrent(repository.getArtifact("be.nabu", "x", "1.0", false), "first", started);
+		assertEquals(hash("first"), TestFiles.toString(new FileInputStream(file.getPath() + ".sha1")));
+		// a scan does not undo it and neither does a restart, whether the index was persisted or not
+		repository.scan();
+		assertCurrent(repository.getArtifact("be.nabu", "x", "1.0", false), "first", started);
+		repository.close();
+		assertCurrent(newRepository(true).getArtifact("be.nabu", "x", "1.0", false), "first", started);
+		new File(root, FileRepository.INDEX_FILE).delete();
+		assertCurrent(newRepository(false).getArtifact("be.nabu", "x", "1.0", false), "first", started);
+	}
+
+	@Test
+	public void testRetentionOfDeduplicatedUpload() throws IOException {
+		FileRepository repository = newRepository(false);
+		create(repository, "1.0", "same");
+		for (File file : root.listFiles()) {
+			file.setLastModified(OLD);
+		}
+		// the old release is indexed with its old timestamp
+		repository = newRepository(false);
+		assertEquals(OLD / 1000, repository.getArtifact("be.nabu", "x", "1.0", false).getLastModified().getTime() / 1000);
+		create(repository, "1.1", "same");
+		create(repository, "2.0", "other");
+		RetentionPolicy policy = new RetentionPolicy();
+		policy.setMaximumReleaseAge(TimeUnit.DAYS.toMillis(30));
+		List<String> removed = new ArrayList<String>();
+		for (Removal removal : new RetentionCollector(repository, policy).collect(true).getRemovals()) {
+			removed.add(removal.getArtifact().getVersion());
+		}
+		assertEquals("[1.0]", removed.toString());
+		// also after a restart
+		removed.clear();
+		for (Removal removal : new RetentionCollector(newRepository(false), policy).collect(true).getRemovals()) {
+			removed.add(removal.getArtifact().getVersion());
+		}
+		assertEquals("[1.0]", removed.toString());
+	}
+
+	private void assertCurrent(Artifact artifact, String content, long started) throws IOException {
+		assertEquals(content, TestFiles.toString(artifact.getContent()));
+		assertEquals(hash(content), ((IndexedArtifact) artifact).getHash(HashAlgorithm.SHA1));
+		assertTrue(artifact.getLastModified().getTime() / 1000 >= started / 1000);
+	}
+
+	private FileRepository newRepository(boolean persistent) throws IOException {
+		FileRepository repository = new FileRepository(root);
+		repository.setPersistent(persistent);
+		repository.setDeduplicate(true);
+		repository.setFileNameFormat("$groupId-$artifactId-$version.$extension");
+		repository.scan();
+		return repository;
+	}
+
+	private static Artifact create(FileRepository repository, String version, String content) throws IOException {
+		return repository.create("be.nabu", "x", version, "txt", new ByteArrayInputStream(content.getBytes("UTF-8")), false);
+	}
+
+	private static String hash(String content) throws IOException {
+		return RepositoryUtils.hash(new ByteArrayInputStream(content.getBytes("UTF-8")), HashAlgorithm.SHA1);
+	}
+}
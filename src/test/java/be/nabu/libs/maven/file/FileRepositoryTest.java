@@ -0,0 +1,166 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.nabu.libs.maven.RepositoryUtils;
+import be.nabu.libs.maven.RepositoryUtils.HashAlgorithm;
+import be.nabu.libs.maven.TestFiles;
+import be.nabu.libs.maven.api.Artifact;
+
+public class FileRepositoryTest {
+
+	private File root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = TestFiles.createDirectory();
+	}
+
+	@After
+	public void tearDown() {
+		TestFiles.delete(root);
+	}
+
+	@Test
+	public void testCoordinatesFromPath() throws IOException {
+		FileRepository repository = newRepository();
+		repository.setCoordinatesFromPath(true);
+		repository.scan();
+		// the file name convention would take "SNAPSHOT" as the version, the format knows better
+		repository.create("be.nabu", "x", "1.0-SNAPSHOT", "txt", new ByteArrayInputStream("content".getBytes("UTF-8")), false);
+		assertNotNull(repository.getArtifact("be.nabu", "x", "1.0-SNAPSHOT", false));
+		// a change that is picked up by the watcher
+		File file = new File(root, "be.nabu-x-1.0-SNAPSHOT.txt");
+		file.setLastModified(System.currentTimeMillis() + 10000);
+		repository.refresh(file);
+		assertEquals(Arrays.asList("1.0-SNAPSHOT"), new ArrayList<String>(repository.getVersions("be.nabu", "x")));
+		repository = newRepository();
+		repository.setCoordinatesFromPath(true);
+		repository.scan();
+		assertEquals(Arrays.asList("1.0-SNAPSHOT"), new ArrayList<String>(repository.getVersions("be.nabu", "x")));
+	}
+
+	@Test
+	public void testConcurrentUploads() throws Exception {
+		final FileRepository repository = newRepository();
+		repository.scan();
+		repository.create("be.nabu", "x", "1.0", "txt", new ByteArrayInputStream(content('a')), false);
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+		final AtomicBoolean uploading = new AtomicBoolean(true);
+		try {
+			List<Future<?>> uploads = new ArrayList<Future<?>>();
+			for (int i = 0; i < 4; i++) {
+				final char character = (char) ('b' + i);
+				uploads.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						for (int j = 0; j < 10; j++) {
+							repository.create("be.nabu", "x", "1.0", "txt", new ByteArrayInputStream(content(character)), false);
+						}
+						return null;
+					}
+				}));
+			}
+			// a reader only ever sees a complete artifact, never one that is being written
+			Future<Integer> reader = executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws IOException {
+					int reads = 0;
+					while (uploading.get()) {
+						Artifact artifact = repository.getArtifact("be.nabu", "x", "1.0", false);
+						InputStream input = artifact.getContent();
+						try {
+							assertComplete(RepositoryUtils.toBytes(input));
+						}
+						finally {
+							input.close();
+						}
+						reads++;
+					}
+					return reads;
+				}
+			});
+			for (Future<?> upload : uploads) {
+				upload.get();
+			}
+			uploading.set(false);
+			assertTrue(reader.get() > 0);
+		}
+		finally {
+			uploading.set(false);
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		Artifact artifact = repository.getArtifact("be.nabu", "x", "1.0", false);
+		byte [] content = RepositoryUtils.toBytes(artifact.getContent());
+		assertComplete(content);
+		// the checksum files belong to the upload that was published last
+		assertEquals(RepositoryUtils.hash(new ByteArrayInputStream(content), HashAlgorithm.SHA1), new String(Files.readAllBytes(new File(root, "be.nabu-x-1.0.txt.sha1").toPath()), "UTF-8").trim());
+		for (String name : root.list()) {
+			assertFalse(name, name.startsWith(FileRepository.TEMPORARY_PREFIX));
+		}
+		// a scan finds the same
+		repository.scan();
+		assertEquals(Arrays.asList("1.0"), new ArrayList<String>(repository.getVersions("be.nabu", "x")));
+	}
+
+	private static byte [] content(char character) {
+		byte [] content = new byte[256 * 1024];
+		Arrays.fill(content, (byte) character);
+		return content;
+	}
+
+	private static void assertComplete(byte [] content) {
+		assertEquals(256 * 1024, content.length);
+		int mixed = 0;
+		while (mixed < content.length && content[mixed] == content[0]) {
+			mixed++;
+		}
+		assertEquals(content.length, mixed);
+	}
+
+	private FileRepository newRepository() {
+		FileRepository repository = new FileRepository(root);
+		repository.setFileNameFormat("$groupId-$artifactId-$version.$extension");
+		return repository;
+	}
+}
@@ -0,0 +1,125 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.nabu.libs.maven.TestFiles;
+
+public class FileScannerTest {
+
+	private File root;
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() throws IOException {
+		root = TestFiles.createDirectory();
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+		TestFiles.delete(root);
+	}
+
+	@Test
+	public void testSymbolicLinks() throws IOException {
+		File real = new File(root, "a/real");
+		real.mkdirs();
+		write(new File(real, "test-real-1.0.txt"));
+		write(new File(root, "test-top-1.0.txt"));
+		new File(root, "b").mkdirs();
+		// the same directory can be reached through two paths
+		Files.createSymbolicLink(new File(root, "b/link").toPath(), real.toPath());
+		// and it contains a link to its own ancestor
+		Files.createSymbolicLink(new File(real, "loop").toPath(), root.toPath());
+
+		Set<File> serial = scan(null, null);
+		Set<File> parallel = scan(pool, null);
+		assertEquals(serial, parallel);
+		assertTrue(parallel.contains(new File(root, "a/real/test-real-1.0.txt")));
+		assertTrue(parallel.contains(new File(root, "b/link/test-real-1.0.txt")));
+		// the loop ends at the root, it is not walked again
+		assertEquals(3, parallel.size());
+	}
+
+	@Test
+	public void testDisappearingDirectory() throws IOException {
+		File doomed = new File(root, "doomed");
+		doomed.mkdirs();
+		write(new File(doomed, "test-doomed-1.0.txt"));
+		write(new File(root, "test-top-1.0.txt"));
+		// the directory is removed after it is listed but before it is walked
+		Set<File> parallel = scan(pool, doomed);
+		assertTrue(parallel.contains(new File(root, "test-top-1.0.txt")));
+
+		doomed.mkdirs();
+		write(new File(doomed, "test-doomed-1.0.txt"));
+		Set<File> serial = scan(null, doomed);
+		assertTrue(serial.contains(new File(root, "test-top-1.0.txt")));
+	}
+
+	@Test
+	public void testMissingRoot() throws IOException {
+		TestFiles.delete(root);
+		assertTrue(scan(null, null).isEmpty());
+		assertTrue(scan(pool, null).isEmpty());
+	}
+
+	private Set<File> scan(ForkJoinPool pool, final File doomed) throws IOException {
+		Set<File> visited = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+		new FileScanner(root, pool, new FileScanner.Handler() {
+			@Override
+			public boolean isModified(File file, BasicFileAttributes attributes) {
+				return false;
+			}
+			@Override
+			public FileArtifact parse(File file, BasicFileAttributes attributes) throws IOException {
+				throw new IllegalStateException("Nothing is modified");
+			}
+			@Override
+			public boolean isSkipped(File directory) {
+				if (directory.equals(doomed)) {
+					TestFiles.delete(doomed);
+				}
+				return false;
+			}
+		}).scan(visited);
+		return new HashSet<File>(visited);
+	}
+
+	private static void write(File file) throws IOException {
+		Files.write(file.toPath(), file.getName().getBytes("UTF-8"));
+	}
+}
@@ -0,0 +1,101 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.nabu.libs.maven.TestFiles;
+
+public class FileWatcherTest {
+
+	private File root;
+	private FileRepository repository;
+
+	@Before
+	public void setUp() throws IOException {
+		root = TestFiles.createDirectory();
+		repository = new FileRepository(root);
+		repository.setFileNameFormat("$groupId/$artifactId-$version.$extension");
+		repository.setCoordinatesFromPath(true);
+		repository.setLive(true);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		repository.close();
+		TestFiles.delete(root);
+	}
+
+	@Test
+	public void testChangesArePickedUp() throws Exception {
+		write("be.nabu/x-1.0.txt");
+		repository.scan();
+		assertVersions("be.nabu", "x", "1.0");
+
+		// a new file and a file in a new directory
+		write("be.nabu/x-2.0.txt");
+		write("org.other/y-1.0.txt");
+		assertVersions("be.nabu", "x", "1.0", "2.0");
+		assertVersions("org.other", "y", "1.0");
+
+		// a deleted file and a deleted directory
+		Files.delete(new File(root, "be.nabu/x-1.0.txt").toPath());
+		TestFiles.delete(new File(root, "org.other"));
+		assertVersions("be.nabu", "x", "2.0");
+		assertVersions("org.other", "y");
+
+		// uploads in progress are not picked up
+		write("be.nabu/" + FileRepository.TEMPORARY_PREFIX + "x-3.0.txt");
+		write("be.nabu/x-4.0.txt");
+		assertVersions("be.nabu", "x", "2.0", "4.0");
+	}
+
+	private void write(String path) throws IOException {
+		File file = new File(root, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), path.getBytes("UTF-8"));
+	}
+
+	/**
+	 * The watcher applies the changes in the background so we wait for them to show up
+	 */
+	private void assertVersions(String groupId, String artifactId, String...expected) throws Exception {
+		List<String> versions = Collections.emptyList();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (System.currentTimeMillis() < deadline) {
+			versions = new ArrayList<String>(repository.getVersions(groupId, artifactId));
+			if (versions.equals(Arrays.asList(expected))) {
+				break;
+			}
+			Thread.sleep(20);
+		}
+		assertEquals(Arrays.asList(expected), versions);
+	}
+}
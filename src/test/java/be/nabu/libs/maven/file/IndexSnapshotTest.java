@@ -0,0 +1,108 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.nabu.libs.maven.JmxRepositoryMetrics;
+import be.nabu.libs.maven.RepositoryUtils;
+import be.nabu.libs.maven.TestFiles;
+import be.nabu.libs.maven.api.Artifact;
+
+public class IndexSnapshotTest {
+
+	private File root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = TestFiles.createDirectory();
+		FileRepository repository = newRepository(null);
+		repository.create("be.nabu", "x", "1.0", "jar", new ByteArrayInputStream(TestFiles.jar("be.nabu", "x", "1.0", "main")), false);
+		repository.create("be.nabu", "x", "1.0", "jar", new ByteArrayInputStream(TestFiles.jar("be.nabu", "x", "1.0", "test")), true);
+		repository.create("org.other", "y", "2.0", "jar", new ByteArrayInputStream(TestFiles.jar("org.other", "y", "2.0", "main")), false);
+		repository.close();
+		assertTrue(new File(root, FileRepository.INDEX_FILE).exists());
+	}
+
+	@After
+	public void tearDown() {
+		TestFiles.delete(root);
+	}
+
+	@Test
+	public void testRestore() throws IOException {
+		JmxRepositoryMetrics metrics = new JmxRepositoryMetrics("snapshot-restore");
+		FileRepository repository = newRepository(metrics);
+		// every artifact comes from the snapshot, none of them are opened
+		assertEquals(1.0, metrics.getCacheHitRatios().get("indexSnapshot"), 0);
+		assertEquals(Arrays.asList("be.nabu", "org.other"), new ArrayList<String>(repository.getGroups()));
+		assertNotNull(repository.getArtifact("be.nabu", "x", "1.0", true));
+		// the content is still read from the file
+		Artifact artifact = repository.getArtifact("be.nabu", "x", "1.0", false);
+		assertEquals("jar", artifact.getPackaging());
+		assertEquals(new File(root, "x-1.0.jar").length(), RepositoryUtils.toBytes(artifact.getContent()).length);
+		repository.close();
+	}
+
+	@Test
+	public void testChangedFileIsParsed() throws IOException {
+		// the file is replaced behind the back of the repository with an artifact with other coordinates
+		File file = new File(root, "y-2.0.jar");
+		assertTrue(file.exists());
+		Files.write(file.toPath(), TestFiles.jar("org.other", "y", "3.0", "changed"));
+		file.setLastModified(System.currentTimeMillis() + 10000);
+		JmxRepositoryMetrics metrics = new JmxRepositoryMetrics("snapshot-changed");
+		FileRepository repository = newRepository(metrics);
+		assertTrue(metrics.getCacheHitRatios().get("indexSnapshot") < 1.0);
+		assertEquals(Arrays.asList("3.0"), new ArrayList<String>(repository.getVersions("org.other", "y")));
+		assertEquals(Arrays.asList("1.0"), new ArrayList<String>(repository.getVersions("be.nabu", "x")));
+		repository.close();
+	}
+
+	@Test
+	public void testCorruptSnapshot() throws IOException {
+		Files.write(new File(root, FileRepository.INDEX_FILE).toPath(), "not a snapshot".getBytes("UTF-8"));
+		FileRepository repository = newRepository(null);
+		assertEquals(Arrays.asList("be.nabu", "org.other"), new ArrayList<String>(repository.getGroups()));
+		assertNotNull(repository.getArtifact("be.nabu", "x", "1.0", true));
+		repository.close();
+	}
+
+	private FileRepository newRepository(JmxRepositoryMetrics metrics) throws IOException {
+		FileRepository repository = new FileRepository(root);
+		repository.setPersistent(true);
+		if (metrics != null) {
+			repository.setMetrics(metrics);
+		}
+		repository.scan();
+		return repository;
+	}
+}
@@ -0,0 +1,132 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.nabu.libs.maven.TestFiles;
+import be.nabu.libs.maven.file.RetentionReport.Reason;
+import be.nabu.libs.maven.file.RetentionReport.Removal;
+
+public class RetentionCollectorTest {
+
+	private static final long OLD = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(100);
+
+	private File root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = TestFiles.createDirectory();
+	}
+
+	@After
+	public void tearDown() {
+		TestFiles.delete(root);
+	}
+
+	@Test
+	public void testSnapshotCount() throws IOException {
+		for (String version : Arrays.asList("1.0-SNAPSHOT", "2.0-SNAPSHOT", "3.0-SNAPSHOT", "4.0-SNAPSHOT", "5.0")) {
+			write(version, false, System.currentTimeMillis());
+		}
+		write("1.0-SNAPSHOT", true, System.currentTimeMillis());
+		FileRepository repository = newRepository();
+		RetentionPolicy policy = new RetentionPolicy();
+		policy.setSnapshotsToKeep(2);
+		RetentionReport report = new RetentionCollector(repository, policy).collect(false);
+		// the test artifact goes with its version
+		assertEquals(Arrays.asList("2.0-SNAPSHOT", "1.0-SNAPSHOT", "1.0-SNAPSHOT-tests"), getRemoved(report, Reason.SNAPSHOT_COUNT));
+		assertEquals(Arrays.asList("3.0-SNAPSHOT", "4.0-SNAPSHOT", "5.0"), new ArrayList<String>(repository.getVersions("be.nabu", "x")));
+		assertFalse(new File(root, "be.nabu-x-1.0-SNAPSHOT.txt").exists());
+		assertFalse(new File(root, "be.nabu-x-1.0-SNAPSHOT-tests.txt").exists());
+		// a restart agrees
+		assertEquals(Arrays.asList("3.0-SNAPSHOT", "4.0-SNAPSHOT", "5.0"), new ArrayList<String>(newRepository().getVersions("be.nabu", "x")));
+	}
+
+	@Test
+	public void testAge() throws IOException {
+		write("1.0", false, OLD);
+		write("2.0", false, System.currentTimeMillis());
+		write("3.0-SNAPSHOT", false, OLD);
+		write("4.0-SNAPSHOT", false, System.currentTimeMillis());
+		// the latest version is kept no matter how old it is
+		write("5.0", false, OLD);
+		FileRepository repository = newRepository();
+		RetentionPolicy policy = new RetentionPolicy();
+		policy.setMaximumReleaseAge(TimeUnit.DAYS.toMillis(30));
+		policy.setMaximumSnapshotAge(TimeUnit.DAYS.toMillis(30));
+		RetentionCollector collector = new RetentionCollector(repository, policy);
+		// a dry run only reports
+		RetentionReport report = collector.collect(true);
+		assertTrue(report.isDryRun());
+		assertEquals(Arrays.asList("1.0"), getRemoved(report, Reason.RELEASE_AGE));
+		assertEquals(Arrays.asList("3.0-SNAPSHOT"), getRemoved(report, Reason.SNAPSHOT_AGE));
+		assertEquals(5, repository.getVersions("be.nabu", "x").size());
+		assertTrue(new File(root, "be.nabu-x-1.0.txt").exists());
+
+		report = collector.collect(false);
+		assertEquals(2, report.getRemovals().size());
+		assertEquals(Arrays.asList("2.0", "4.0-SNAPSHOT", "5.0"), new ArrayList<String>(repository.getVersions("be.nabu", "x")));
+		assertFalse(new File(root, "be.nabu-x-1.0.txt").exists());
+		assertFalse(new File(root, "be.nabu-x-1.0.txt.sha1").exists());
+		// nothing is left to do
+		assertTrue(collector.collect(false).getRemovals().isEmpty());
+	}
+
+	private static List<String> getRemoved(RetentionReport report, Reason reason) {
+		List<String> removed = new ArrayList<String>();
+		for (Removal removal : report.getRemovals()) {
+			if (removal.getReason() == reason) {
+				removed.add(removal.getArtifact().getVersion() + (removal.getArtifact().isTest() ? "-tests" : ""));
+			}
+		}
+		return removed;
+	}
+
+	private void write(String version, boolean isTest, long modified) throws IOException {
+		File file = new File(root, "be.nabu-x-" + version + (isTest ? "-tests" : "") + ".txt");
+		Files.write(file.toPath(), version.getBytes("UTF-8"));
+		// the checksum files are removed along with the artifact
+		File checksum = new File(file.getPath() + ".sha1");
+		Files.write(checksum.toPath(), "0".getBytes("UTF-8"));
+		file.setLastModified(modified);
+		checksum.setLastModified(modified);
+	}
+
+	private FileRepository newRepository() throws IOException {
+		FileRepository repository = new FileRepository(root);
+		repository.setFileNameFormat("$groupId-$artifactId-$version.$extension");
+		repository.setCoordinatesFromPath(true);
+		repository.scan();
+		return repository;
+	}
+}
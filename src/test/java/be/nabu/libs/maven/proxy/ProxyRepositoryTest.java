@@ -0,0 +1,276 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.maven.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.nabu.libs.maven.RepositoryUtils;
+import be.nabu.libs.maven.TestFiles;
+import be.nabu.libs.maven.api.Artifact;
+import be.nabu.libs.maven.api.Repository;
+import be.nabu.libs.maven.file.FileRepository;
+
+public class ProxyRepositoryTest {
+
+	private static final int CLIENTS = 8;
+
+	private File upstreamRoot, localRoot;
+	private FileRepository upstream, local;
+	private CountingRepository counting;
+	private ProxyRepository proxy;
+	private ExecutorService clients;
+
+	@Before
+	public void setUp() throws IOException {
+		upstreamRoot = TestFiles.createDirectory();
+		localRoot = TestFiles.createDirectory();
+		upstream = newRepository(upstreamRoot);
+		local = newRepository(localRoot);
+		counting = new CountingRepository(upstream);
+		proxy = new ProxyRepository(counting, local);
+		clients = Executors.newFixedThreadPool(CLIENTS);
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			content.append("line ").append(i).append("\n");
+		}
+		upstream.create("be.nabu", "x", "1.0", "txt", new ByteArrayInputStream(content.toString().getBytes("UTF-8")), false);
+	}
+
+	@After
+	public void tearDown() {
+		clients.shutdownNow();
+		TestFiles.delete(upstreamRoot);
+		TestFiles.delete(localRoot);
+	}
+
+	@Test
+	public void testConcurrentDownload() throws Exception {
+		final String expected = RepositoryUtils.toString(upstream.getArtifact("be.nabu", "x", "1.0", false).getContent());
+		counting.delay = 200;
+		List<String> contents = concurrently(new Callable<String>() {
+			@Override
+			public String call() throws IOException {
+				Artifact artifact = proxy.getArtifact("be.nabu", "x", "1.0", false);
+				return RepositoryUtils.toString(artifact.getContent());
+			}
+		});
+		for (String content : contents) {
+			assertEquals(expected, content);
+		}
+		// one lookup and one download, the client that downloaded it shared it with the local repository
+		assertEquals(1, counting.lookups.get());
+		assertEquals(1, counting.downloads.get());
+		Artifact stored = local.getArtifact("be.nabu", "x", "1.0", false);
+		assertNotNull(stored);
+		assertEquals(expected, RepositoryUtils.toString(stored.getContent()));
+		// from now on it is served locally
+		assertEquals(expected, RepositoryUtils.toString(proxy.getArtifact("be.nabu", "x", "1.0", false).getContent()));
+		assertEquals(1, counting.lookups.get());
+		assertEquals(1, counting.downloads.get());
+	}
+
+	@Test
+	public void testNegativeTtl() throws Exception {
+		proxy.setNegativeTtl(300);
+		for (int i = 0; i < 5; i++) {
+			assertNull(proxy.getArtifact("be.nabu", "y", "1.0", false));
+			assertNull(proxy.getMetaData("be.nabu", "y"));
+		}
+		assertEquals(1, counting.lookups.get());
+		assertEquals(1, counting.metaDataLookups.get());
+		Thread.sleep(400);
+		assertNull(proxy.getArtifact("be.nabu", "y", "1.0", false));
+		assertNull(proxy.getMetaData("be.nabu", "y"));
+		assertEquals(2, counting.lookups.get());
+		assertEquals(2, counting.metaDataLookups.get());
+		// an upload is found straight away
+		proxy.create("be.nabu", "y", "1.0", "txt", new ByteArrayInputStream("local".getBytes("UTF-8")), false);
+		assertNotNull(proxy.getArtifact("be.nabu", "y", "1.0", false));
+	}
+
+	@Test
+	public void testMetaData() throws Exception {
+		proxy.setMetaDataTtl(300);
+		counting.delay = 200;
+		List<String> metaData = concurrently(new Callable<String>() {
+			@Override
+			public String call() throws IOException {
+				return RepositoryUtils.toString(proxy.getMetaData("be.nabu", "x"));
+			}
+		});
+		for (String content : metaData) {
+			assertTrue(content.contains("<version>1.0</version>"));
+		}
+		assertEquals(1, counting.metaDataLookups.get());
+		assertTrue(RepositoryUtils.toString(proxy.getMetaData("be.nabu", "x")).contains("<version>1.0</version>"));
+		assertEquals(1, counting.metaDataLookups.get());
+
+		// a new version upstream shows up once the cached metadata expires
+		upstream.create("be.nabu", "x", "2.0", "txt", new ByteArrayInputStream("second".getBytes("UTF-8")), false);
+		counting.delay = 0;
+		Thread.sleep(400);
+		assertTrue(RepositoryUtils.toString(proxy.getMetaData("be.nabu", "x")).contains("<version>2.0</version>"));
+		assertEquals(2, counting.metaDataLookups.get());
+	}
+
+	private <T> List<T> concurrently(Callable<T> callable) throws Exception {
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		for (int i = 0; i < CLIENTS; i++) {
+			futures.add(clients.submit(callable));
+		}
+		List<T> results = new ArrayList<T>();
+		for (Future<T> future : futures) {
+			results.add(future.get());
+		}
+		return results;
+	}
+
+	private static FileRepository newRepository(File root) throws IOException {
+		FileRepository repository = new FileRepository(root);
+		repository.setFileNameFormat("$groupId-$artifactId-$version.$extension");
+		repository.scan();
+		return repository;
+	}
+
+	/**
+	 * An upstream that counts what is asked of it, it can be slowed down so concurrent clients overlap
+	 */
+	private static class CountingRepository implements Repository {
+		private Repository repository;
+		private volatile long delay;
+		private AtomicInteger lookups = new AtomicInteger(), metaDataLookups = new AtomicInteger(), downloads = new AtomicInteger();
+
+		private CountingRepository(Repository repository) {
+			this.repository = repository;
+		}
+
+		private void delay() throws IOException {
+			try {
+				Thread.sleep(delay);
+			}
+			catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+		}
+
+		@Override
+		public SortedSet<String> getGroups() throws IOException {
+			return repository.getGroups();
+		}
+
+		@Override
+		public SortedSet<String> getArtifacts(String groupId) throws IOException {
+			return repository.getArtifacts(groupId);
+		}
+
+		@Override
+		public SortedSet<String> getVersions(String groupId, String artifactId) throws IOException {
+			return repository.getVersions(groupId, artifactId);
+		}
+
+		@Override
+		public Artifact getArtifact(String groupId, String artifactId, String version, boolean isTest) throws IOException {
+			lookups.incrementAndGet();
+			delay();
+			final Artifact artifact = repository.getArtifact(groupId, artifactId, version, isTest);
+			if (artifact == null) {
+				return null;
+			}
+			return new Artifact() {
+				@Override
+				public InputStream getPom() throws IOException {
+					return artifact.getPom();
+				}
+				@Override
+				public String getPackaging() {
+					return artifact.getPackaging();
+				}
+				@Override
+				public String getGroupId() {
+					return artifact.getGroupId();
+				}
+				@Override
+				public String getVersion() {
+					return artifact.getVersion();
+				}
+				@Override
+				public String getArtifactId() {
+					return artifact.getArtifactId();
+				}
+				@Override
+				public Date getLastModified() {
+					return artifact.getLastModified();
+				}
+				@Override
+				public boolean isTest() {
+					return artifact.isTest();
+				}
+				@Override
+				public InputStream getContent() throws IOException {
+					downloads.incrementAndGet();
+					// small reads so the download takes long enough for the other clients to wait for it
+					return new FilterInputStream(artifact.getContent()) {
+						@Override
+						public int read(byte [] bytes, int offset, int length) throws IOException {
+							return super.read(bytes, offset, Math.min(length, 4096));
+						}
+					};
+				}
+			};
+		}
+
+		@Override
+		public InputStream getMetaData(String groupId, String artifactId) throws IOException {
+			metaDataLookups.incrementAndGet();
+			delay();
+			return repository.getMetaData(groupId, artifactId);
+		}
+
+		@Override
+		public InputStream getMetaData(Artifact artifact) throws IOException {
+			return repository.getMetaData(artifact);
+		}
+
+		@Override
+		public void scan() throws IOException {
+			repository.scan();
+		}
+	}
+}